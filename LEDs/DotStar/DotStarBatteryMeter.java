@@ -1,7 +1,5 @@
 package org.firstinspires.ftc.teamcode;
 
-import android.graphics.Color;
-
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 import com.qualcomm.robotcore.hardware.VoltageSensor;
@@ -30,6 +28,9 @@ public class DotStarBatteryMeter extends OpMode {
     private static final double MIN_VOLTAGE = 11.0;
     private static final double MAX_VOLTAGE = 13.5;
 
+    // Colors around the color wheel (one per degree), so we don't have to convert hues ourselves.
+    private static final DotStarHueTable HUES = new DotStarHueTable(360, 1.0f, 0.25f);
+
     @Override
     public void init() {
         // On a REV Expansion Hub, the name of the sensor is the name of the hub.
@@ -43,6 +44,9 @@ public class DotStarBatteryMeter extends OpMode {
 
         // Set the length of the strip.
         leds.setLength(30);
+
+        // The loop runs much faster than anyone can see, so don't fill the I2C bus with LED writes.
+        leds.setMaxFrameRate(30);
     }
 
     @Override
@@ -65,13 +69,13 @@ public class DotStarBatteryMeter extends OpMode {
         double hue = getBatteryVoltageHue(voltage);
 
         // Convert hue into RGB.
-        int color = Color.HSVToColor(new float[]{(float) hue, 1.0f, 0.25f});
+        int color = HUES.getColor(hue);
 
         // Choose how many pixels to light.
         int pixelsToLight = getNumberOfPixelsToLight(voltage);
 
         // Set the LEDs.
-        for (int i = 0; i < leds.pixels.length; i++) {
+        for (int i = 0; i < leds.getLength(); i++) {
             if (i < pixelsToLight) {
                 leds.setPixel(i, color);
             }
@@ -82,6 +86,12 @@ public class DotStarBatteryMeter extends OpMode {
         leds.update();
     }
 
+    @Override
+    public void stop() {
+        // Make sure the last colors set are shown, even if they came too soon to be written.
+        leds.flush();
+    }
+
     /**
      * Returns a hue corresponding to the given voltage based on MIN_VOLTAGE and MAX_VOLTAGE.
      *
@@ -126,12 +136,12 @@ public class DotStarBatteryMeter extends OpMode {
 
         // If voltage is above the maximum, light every pixel.
         else if (MAX_VOLTAGE - voltage <= 0) {
-            return leds.pixels.length;
+            return leds.getLength();
         }
 
         // If voltage is in between min/max, light a proportional number of pixels.
         else {
-            return (int) Math.ceil((voltage - MIN_VOLTAGE) * leds.pixels.length / range);
+            return (int) Math.ceil((voltage - MIN_VOLTAGE) * leds.getLength() / range);
         }
     }
 }
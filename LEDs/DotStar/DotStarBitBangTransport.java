@@ -0,0 +1,238 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DigitalChannel;
+
+import java.util.Arrays;
+
+/**
+ * Sends bytes to DotStar LEDs by switching two digital outputs: one for data, one for the clock.
+ *
+ * Turning the clock line on and off tells the LEDs to read the next bit from the data line. Every
+ * bit costs at least two digital writes, so this is much slower than an I2C/SPI bridge
+ * ({@link DotStarBridgeTransport}), but needs no extra hardware. This is the transport used by
+ * {@link DotStarLED}.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @author Rick Van Smith
+ * @version 1.0.0
+ */
+public class DotStarBitBangTransport implements DotStarTransport {
+
+    //----------------------------------------------------------------------------------------------
+    // State
+    //----------------------------------------------------------------------------------------------
+
+    /** Digital IO channels used for the clock and data lines. */
+    private final DigitalChannel clock, data;
+
+    /** Whether the clock and data lines have been set to a known state. */
+    private boolean linesReady;
+
+    /** Current state of the data line (0 or 1), once the lines are ready. */
+    private int dataState;
+
+    /** Whether to write identical bits as batched runs. */
+    private volatile boolean runLengthMode;
+
+    /**
+     * For each data line state (0 or 1) and byte value, a mask of the bits (most-significant bit
+     * first) before which the data line must change. Index with (state << 8) | value.
+     */
+    private static final int[] TRANSITIONS = new int[512];
+
+    /**
+     * For each byte value, the lengths of its runs of identical bits, most-significant bit first.
+     * For example, 0b11100100 has runs {3, 2, 1, 2}.
+     */
+    private static final byte[][] RUNS = new byte[256][];
+
+    static {
+        for (int value = 0; value < 256; value++) {
+            // Learn which bits differ from the bit before them, given either starting state.
+            for (int state = 0; state < 2; state++) {
+                int mask = 0, previous = state;
+
+                for (int bit = 7; bit >= 0; bit--) {
+                    int current = (value >> bit) & 1;
+
+                    if (current != previous) {
+                        mask |= 1 << bit;
+                    }
+
+                    previous = current;
+                }
+
+                TRANSITIONS[(state << 8) | value] = mask;
+            }
+
+            // Count the lengths of each run of identical bits.
+            byte[] runs = new byte[8];
+            int count = 0, length = 1;
+
+            for (int bit = 6; bit >= 0; bit--) {
+                if (((value >> bit) & 1) == ((value >> (bit + 1)) & 1)) {
+                    length++;
+                }
+                else {
+                    runs[count++] = (byte) length;
+                    length = 1;
+                }
+            }
+
+            runs[count++] = (byte) length;
+            RUNS[value] = Arrays.copyOf(runs, count);
+        }
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Construction
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Prepares both digital channels for output.
+     *
+     * @param clock Digital IO channel for the clock line.
+     * @param data  Digital IO channel for the data line.
+     */
+    public DotStarBitBangTransport(DigitalChannel clock, DigitalChannel data) {
+        this.clock = clock;
+        this.data = data;
+
+        this.clock.setMode(DigitalChannel.Mode.OUTPUT);
+        this.data.setMode(DigitalChannel.Mode.OUTPUT);
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Public API
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Choose how bits are written to the digital outputs.
+     *
+     * Both modes switch the outputs exactly the same way. Run-length mode spends less time
+     * deciding what to do between bits, which helps most with long stretches of identical bits
+     * such as dark pixels and the header frame.
+     *
+     * @param enabled True to batch identical bits into runs, false to write byte by byte.
+     */
+    public void setRunLengthMode(boolean enabled) {
+        this.runLengthMode = enabled;
+    }
+
+    /** @return True if identical bits are batched into runs. */
+    public boolean isRunLengthMode() {
+        return runLengthMode;
+    }
+
+    /**
+     * Writes out the first length bytes of the given buffer to the LEDs.
+     *
+     * Every bit requires the clock line to be switched on and off, but the data line only needs to
+     * change when a bit differs from the one before it. Rather than comparing bit by bit, this
+     * method looks up which data line changes each byte needs in a precomputed table. In run-length
+     * mode, identical bits (including across byte boundaries) are batched into a single run of
+     * clock pulses instead.
+     *
+     * @param buffer Raw data to write out, including frame boundaries and termination bytes.
+     * @param length Number of bytes from the start of buffer to write.
+     * @see #setRunLengthMode(boolean)
+     */
+    public synchronized void write(byte[] buffer, int length) {
+        // Clear the slate the first time; afterwards, the clock is always left low.
+        if (!linesReady) {
+            data.setState(false);
+            clock.setState(false);
+            dataState = 0;
+            linesReady = true;
+        }
+
+        if (runLengthMode) {
+            writeRuns(buffer, length);
+        }
+        else {
+            writeTransitions(buffer, length);
+        }
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Utility
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Writes out the given buffer using the {@link #TRANSITIONS} table.
+     *
+     * @param buffer Raw data to write out.
+     * @param length Number of bytes to write.
+     */
+    private void writeTransitions(byte[] buffer, int length) {
+        int state = dataState;
+
+        for (int i = 0; i < length; i++) {
+            int changes = TRANSITIONS[(state << 8) | (buffer[i] & 0xFF)];
+
+            // Write the byte with most-significant bit first, only touching the data line if needed.
+            for (int mask = 0x80; mask != 0; mask >>>= 1) {
+                if ((changes & mask) != 0) {
+                    state ^= 1;
+                    data.setState(state == 1);
+                }
+
+                clock.setState(true);
+                clock.setState(false);
+            }
+        }
+
+        dataState = state;
+    }
+
+    /**
+     * Writes out the given buffer using the {@link #RUNS} table.
+     *
+     * @param buffer Raw data to write out.
+     * @param length Number of bytes to write.
+     */
+    private void writeRuns(byte[] buffer, int length) {
+        int state = dataState;
+
+        // Number of clock pulses owed for bits equal to the current data line state.
+        int pending = 0;
+
+        for (int i = 0; i < length; i++) {
+            int value = buffer[i] & 0xFF;
+
+            // Runs alternate between ones and zeroes, starting with the most-significant bit.
+            int bit = value >>> 7;
+
+            for (byte run : RUNS[value]) {
+                if (bit != state) {
+                    pulseClock(pending);
+                    pending = 0;
+
+                    state = bit;
+                    data.setState(state == 1);
+                }
+
+                pending += run;
+                bit ^= 1;
+            }
+        }
+
+        pulseClock(pending);
+        dataState = state;
+    }
+
+    /**
+     * Switches the clock line on and off the given number of times.
+     *
+     * @param pulses Number of bits to clock in.
+     */
+    private void pulseClock(int pulses) {
+        for (int i = 0; i < pulses; i++) {
+            clock.setState(true);
+            clock.setState(false);
+        }
+    }
+}
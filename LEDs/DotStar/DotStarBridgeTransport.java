@@ -0,0 +1,270 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.I2cDeviceSynchSimple;
+import com.qualcomm.robotcore.hardware.I2cWaitControl;
+
+import java.util.Arrays;
+
+/**
+ * Sends bytes to DotStar LEDs through an I2C/SPI bridge.
+ *
+ * The bridge (an NXP SC18IS602) treats the first byte of each I2C write as a function ID. IDs
+ * 0x01 through 0x0F mean "send the rest over SPI", with each bit selecting one of the slave select
+ * lines; the LEDs are wired to the one chosen by the write register (0x01 by default). The bytes
+ * are collected in the bridge's {@value #BRIDGE_BUFFER}-byte data buffer and sent as a single SPI
+ * transaction once the I2C write ends.
+ *
+ * A frame is usually larger than that, and larger than the controller's I2C buffer, so it is sent
+ * in chunks: each as large as both buffers allow. With aligned chunks (see
+ * {@link #setAligned(boolean)}), chunks are also cut between pixel words, so no pixel is ever
+ * split across two SPI transactions.
+ *
+ * This is the transport used by {@link DotStarBridgedLED}, which keeps its settings in step with
+ * its parameters.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @author Rick Van Smith
+ * @version 1.1.1
+ */
+public class DotStarBridgeTransport implements DotStarTransport {
+
+    //----------------------------------------------------------------------------------------------
+    // Constants
+    //----------------------------------------------------------------------------------------------
+
+    /** Size of the bridge's data buffer: the most bytes sent over SPI by one I2C write. */
+    public static final int BRIDGE_BUFFER = 200;
+
+    /** Size of a DotStar word. Header frame and pixels are all whole words. */
+    private static final int WORD_BYTES = 4;
+
+
+    //----------------------------------------------------------------------------------------------
+    // State
+    //----------------------------------------------------------------------------------------------
+
+    /** I2C device client of the bridge. */
+    private final I2cDeviceSynchSimple deviceClient;
+
+    /** Bridge "register" (buffer prefix) to pass-through to the LEDs. */
+    private volatile int writeRegister = 0x01;
+
+    /** Maximum size of the I2C buffer as determined by the hardware, including the register. */
+    private volatile int maxBuffer = 100;
+
+    /** Whether to queue every chunk of a frame before waiting for any. */
+    private volatile boolean pipelined;
+
+    /** Whether to cut chunks only between pixel words. */
+    private volatile boolean aligned;
+
+    /** Reusable arrays for sending slices of a frame, indexed by slice length. */
+    private byte[][] chunkBuffers;
+
+
+    //----------------------------------------------------------------------------------------------
+    // Construction
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @param deviceClient I2C device client of the bridge.
+     */
+    public DotStarBridgeTransport(I2cDeviceSynchSimple deviceClient) {
+        this.deviceClient = deviceClient;
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Public API
+    //----------------------------------------------------------------------------------------------
+
+    /** @return Bridge "register" (buffer prefix) passed through to the LEDs. */
+    public int getWriteRegister() {
+        return writeRegister;
+    }
+
+    /** @param register Bridge "register" (buffer prefix) to pass through to the LEDs. */
+    public void setWriteRegister(int register) {
+        this.writeRegister = register;
+    }
+
+    /** @return Maximum number of bytes written to the I2C bus at once, including the register. */
+    public int getMaxBuffer() {
+        return maxBuffer;
+    }
+
+    /**
+     * Set the maximum number of bytes to be written to the I2C bus at once.
+     *
+     * @param buffer Maximum bytes to write, including the register.
+     */
+    public void setMaxBuffer(int buffer) {
+        if (buffer < 1) {
+            throw new IllegalArgumentException("I2C buffer size must be at least 1");
+        }
+
+        this.maxBuffer = buffer;
+    }
+
+    /** @return True if every chunk of a frame is queued before waiting for any of them. */
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * Set whether to pipeline writes.
+     *
+     * Normally, each chunk of a frame waits until it has been written before the next is sent, so a
+     * long strip costs one I2C round trip per chunk. With pipelining, every chunk is queued at once
+     * and the write waits a single time at the end.
+     *
+     * @param enabled True to queue every chunk before waiting.
+     */
+    public void setPipelined(boolean enabled) {
+        this.pipelined = enabled;
+    }
+
+    /** @return True if chunks are only cut between pixel words. */
+    public boolean isAligned() {
+        return aligned;
+    }
+
+    /**
+     * Set whether to cut chunks only between pixel words.
+     *
+     * Each chunk is sent by the bridge as its own SPI transaction. Normally chunks are as large as
+     * possible, which can leave a pixel word split between two transactions. If one of them goes
+     * astray, every pixel after it is garbled. Aligned chunks are rounded down to whole words (for
+     * example, 96 data bytes rather than 99 with a 100-byte I2C buffer), so at worst whole pixels
+     * are lost.
+     *
+     * @param enabled True to cut chunks only between pixel words.
+     */
+    public void setAligned(boolean enabled) {
+        this.aligned = enabled;
+    }
+
+    /**
+     * Returns the number of data bytes sent in each chunk, given the current settings.
+     *
+     * @return Bytes of data per I2C write (and SPI transaction), not counting the function ID.
+     */
+    public int getChunkSize() {
+        return chunkSize(maxBuffer, aligned);
+    }
+
+    /**
+     * Returns the number of I2C writes needed to send a number of bytes, with the current settings.
+     *
+     * @param length Number of bytes to send.
+     * @return       Number of chunks {@link #write(byte[], int)} splits them into.
+     */
+    public int getChunkCount(int length) {
+        if (maxBuffer <= 1) {
+            return length;
+        }
+
+        int size = chunkSize(maxBuffer, aligned);
+        return (length + size - 1) / size;
+    }
+
+    /**
+     * Writes out the first length bytes of the given buffer to the LEDs via the I2C/SPI bridge.
+     *
+     * This method will attempt to write the given data in the most efficient way possible based on
+     * the maximum buffer size and the bridge's data buffer. In the worst case, bytes will be
+     * written one at a time. Atomic write waiting is used to guarantee that writes are made
+     * successfully (though not necessarily completed by the time this method returns). Chunks are
+     * sent from reusable arrays, so a steady stream of frames allocates no memory.
+     *
+     * @param buffer Raw data to write out, including frame boundaries and termination bytes.
+     * @param length Number of bytes from the start of buffer to write.
+     */
+    public synchronized void write(byte[] buffer, int length) {
+        int register = writeRegister;
+        int max = maxBuffer;
+        int size = chunkSize(max, aligned);
+
+        // When pipelining, queue each write without waiting for it, then wait once at the end.
+        boolean pipeline = pipelined;
+        I2cWaitControl waitControl = pipeline ? I2cWaitControl.NONE : I2cWaitControl.WRITTEN;
+
+        // Write the largest "chunks" possible for the I2C bus.
+        if (max > 1) {
+            int left = 0, right;
+
+            // Use left, right to track the bounds of the next chunk to write.
+            while (left < length) {
+                right = Math.min(left + size, length);
+
+                byte[] chunk = chunkBuffer(right - left);
+                System.arraycopy(buffer, left, chunk, 0, chunk.length);
+
+                deviceClient.write(register, chunk, waitControl);
+
+                left = right;
+            }
+        }
+
+        // If necessary, write one byte at a time.
+        else {
+            for (int i = 0; i < length; i++) {
+                deviceClient.write8(register, buffer[i], waitControl);
+            }
+        }
+
+        if (pipeline) {
+            deviceClient.waitForWriteCompletions(I2cWaitControl.WRITTEN);
+        }
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Utility
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Works out how many data bytes to send in each I2C write.
+     *
+     * @param maxBuffer Maximum size of the I2C buffer, including the function ID.
+     * @param aligned   Whether chunks must hold whole pixel words.
+     * @return          Bytes of data per chunk, at least 1.
+     */
+    private static int chunkSize(int maxBuffer, boolean aligned) {
+        // Minus one, because the register (function ID) counts as a byte.
+        int size = Math.max(1, Math.min(maxBuffer - 1, BRIDGE_BUFFER));
+
+        // Round down to whole words, unless the I2C buffer cannot even hold one.
+        if (aligned && size >= WORD_BYTES) {
+            size -= size % WORD_BYTES;
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns a reusable array of exactly the given size for sending one chunk.
+     *
+     * The SDK copies the data out of the array during each write, so a single array per size can
+     * be reused for every chunk. Arrays are created the first time each size is needed, and kept
+     * from then on.
+     *
+     * @param size Number of bytes in the chunk.
+     * @return     Array of length size, with undefined contents.
+     */
+    private byte[] chunkBuffer(int size) {
+        if (chunkBuffers == null) {
+            chunkBuffers = new byte[size + 1][];
+        }
+        else if (chunkBuffers.length <= size) {
+            // Keep the arrays made so far; only the table of them grows.
+            chunkBuffers = Arrays.copyOf(chunkBuffers, size + 1);
+        }
+
+        if (chunkBuffers[size] == null) {
+            chunkBuffers[size] = new byte[size];
+        }
+
+        return chunkBuffers[size];
+    }
+}
@@ -6,7 +6,6 @@ import com.qualcomm.robotcore.hardware.I2cAddr;
 import com.qualcomm.robotcore.hardware.I2cDeviceSynch;
 import com.qualcomm.robotcore.hardware.I2cDeviceSynchDeviceWithParameters;
 import com.qualcomm.robotcore.hardware.I2cDeviceSynchSimple;
-import com.qualcomm.robotcore.hardware.I2cWaitControl;
 import com.qualcomm.robotcore.hardware.configuration.annotations.DeviceProperties;
 import com.qualcomm.robotcore.hardware.configuration.annotations.I2cDeviceType;
 
@@ -26,31 +25,134 @@ import java.util.Arrays;
  * allowed current can damage your devices. It is your responsibility to ensure this doesn't happen.
  * The default Parameters allow for 1.5 amps of current (as allowed by the REV Expansion Hub). If
  * you are using a legacy Modern Robotics Core DIM, this limit (and the I2C bus size) is too high.
+ * By default the colors are dimmed to stay within the limit; {@link #setCurrentLimiting} can use
+ * the LEDs' 5-bit brightness instead, which keeps the colors at full resolution.
  *
  * If using the REV Robotics Expansion Hub to run the I2C/SPI bridge, please ensure you have
  * firmware version 1.7.2 or greater. Otherwise, the heavy I2C write load may cause crashes. Also,
  * do not use I2C bus/port 0, as the operation of the bridge will interfere with the internal IMU.
  *
+ * Several strips can be drawn on and written together using a {@link DotStarCompositor}.
+ *
+ * Dim colors can be made smoother with gamma correction, a lower global brightness, and dithering
+ * (see {@link DotStarOutputStage}). These are off by default.
+ *
+ * Colors are encoded by a {@link DotStarEncoder} and sent by a {@link DotStarBridgeTransport}. The
+ * transport can be replaced (see {@link #setTransport(DotStarTransport)}), for example with a
+ * {@link DotStarRecorderTransport} to measure the cost of encoding alone.
+ *
  * @author AJ Foster and Mike Nicolai
  * @author Rick Van Smith
- * @version 2.1.0
+ * @version 2.10.1
  */
 @SuppressWarnings({"unused", "WeakerAccess"})
 @DeviceProperties(name = "DotStar LEDs via SPI Bridge", description = "DotStar LED strip connected via an I2C/SPI bridge", xmlTag = "DotStarBridgedLED")
 @I2cDeviceType()
-public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDeviceSynchSimple, DotStarBridgedLED.Parameters> {
+public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDeviceSynchSimple, DotStarBridgedLED.Parameters>
+        implements DotStarFrameBuffer {
 
     //----------------------------------------------------------------------------------------------
     // State
     //----------------------------------------------------------------------------------------------
 
     /**
-     * Array representing the individual pixel groups in the LED strip.
+     * Packed colors of the individual pixel groups in the LED strip, one 0xRRGGBB value per pixel.
+     *
+     * Sizing can be set using {@link Parameters#length} during initialization. Keeping the colors
+     * in a single primitive array (rather than one object per pixel) means {@link #update()} reads
+     * one contiguous block of memory, and changing colors never creates garbage.
+     */
+    private int[] frame;
+
+    /**
+     * Range of pixels (inclusive) changed since the last write. Empty (low above high) if no write
+     * is necessary. Volatile, so {@link Pixel#getDirty()} sees changes made on other threads.
+     */
+    private volatile int dirtyLow, dirtyHigh;
+
+    /** Tracks the current drawn by the pixels as they change, and how much to dim them. */
+    private DotStarPowerBudget budget;
+
+    /** Gamma, brightness, and dithering tables built from the parameters. */
+    private volatile DotStarOutputStage outputStage = DotStarOutputStage.NONE;
+
+    /** Time (System.nanoTime) when the next frame may be written, if maxFrameRate is set. */
+    private long nextFrameNanos = System.nanoTime();
+
+    /** Number of times the pixels, or the way they are written, changed. See getGeneration(). */
+    private volatile int generation;
+
+    /**
+     * Frame made by {@link #encode(int[])} to write in place of the pixels, or null. Set by show,
+     * and dropped by the next write if a pixel has changed since.
+     */
+    private byte[] shownFrame;
+
+    /**
+     * Array of views onto the individual pixel groups in the LED strip.
      *
-     * Sizing can be set using {@link Parameters#length} during initialization.
+     * This is kept for code written against earlier versions of this class. The views read and
+     * write through to the strip's colors, and are only recreated when the length changes.
+     *
+     * @deprecated Use {@link #getLength()}, {@link #getPixel(int)} and {@link #setPixel(int, int)}.
      */
+    @Deprecated
     public DotStarBridgedLED.Pixel[] pixels;
 
+    /**
+     * Encodes the strip, reusing its buffer from frame to frame. Only the caller of
+     * {@link #update()}, or the writer thread in asynchronous mode, uses it.
+     */
+    private final DotStarEncoder encoder = new DotStarEncoder();
+
+    /** Transport to the I2C/SPI bridge, kept in step with the parameters. */
+    private final DotStarBridgeTransport bridge;
+
+    /** Transport that writes reach: the bridge, unless replaced. */
+    private volatile DotStarTransport transport;
+
+    /**
+     * Thread writing frames in asynchronous mode, or null when writing on the caller's thread.
+     * Changed only while holding frameLock; the writer stops once it is no longer this thread.
+     */
+    private volatile Thread writerThread;
+
+    /** Guards the pending frame and frame counters shared with the writer thread. */
+    private final Object frameLock = new Object();
+
+    /** Most recently submitted frame, waiting to be picked up by the writer thread. */
+    private int[] pendingFrame = new int[0];
+
+    /** Range of pixels (inclusive) changed in the pending frame. Empty if nothing is pending. */
+    private int pendingLow = Integer.MAX_VALUE, pendingHigh = -1;
+
+    /** Current-limiting scale to use for the pending frame. */
+    private int pendingScale = DotStarPowerBudget.FULL_SCALE;
+
+    /** Pre-encoded frame waiting for the writer thread in place of the pending pixels, or null. */
+    private byte[] pendingEncoded;
+
+    /** Frame currently being written by the writer thread. Swapped with the pending frame. */
+    private int[] outputFrame = new int[0];
+
+    /** Number of frames handed off, written, and replaced before they could be written. */
+    private long framesSubmitted, framesWritten, framesDropped;
+
+    /** Guards the transport, so frames from different threads are not mixed. */
+    private final Object writeLock = new Object();
+
+    /** Buffer most recently written to the device, guarded by writeLock. */
+    private byte[] lastWritten;
+
+    /**
+     * Whether a pre-encoded frame was written since the encoder last encoded every pixel, so its
+     * buffer no longer matches the LEDs. Guarded by writeLock.
+     */
+    private boolean encoderStale;
+
+    /** Time spent encoding and writing, and how much was sent. */
+    private final DotStarCounters metrics = new DotStarCounters();
+
 
     //----------------------------------------------------------------------------------------------
     // Construction
@@ -67,12 +169,17 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
         this.deviceClient.setLogging(this.parameters.loggingEnabled);
         this.deviceClient.setLoggingTag(this.parameters.loggingTag);
 
-        // Create array for pixels.
-        this.pixels = new DotStarBridgedLED.Pixel[params.length];
+        // Writes go through the bridge, with its settings taken from the parameters.
+        this.bridge = new DotStarBridgeTransport(this.deviceClient);
+        this.transport = this.bridge;
+        configureBridge();
 
-        for (int i = 0; i < params.length; i++) {
-            pixels[i] = new DotStarBridgedLED.Pixel(0, 0, 0);
-        }
+        // Create array for pixels. Everything starts "off", but must be written at least once.
+        this.frame = new int[params.length];
+        this.budget = new DotStarPowerBudget(this.parameters.maxOutputAmps);
+        this.outputStage = createOutputStage();
+        markAllDirty();
+        createPixelViews();
 
         // We ask for an initial callback here; that will eventually call internalInitialize().
         this.registerArmingStateCallback(true);
@@ -90,6 +197,18 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
         this.parameters = parameters.clone();
         this.deviceClient.setI2cAddress(parameters.i2cAddr);
 
+        if (this.budget != null) {
+            this.budget.setMaxOutputAmps(this.parameters.maxOutputAmps);
+        }
+
+        if (this.frame != null) {
+            setOutputStage(createOutputStage());
+        }
+
+        if (this.bridge != null) {
+            configureBridge();
+        }
+
         return true;
     }
 
@@ -100,9 +219,9 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
 
     /** Reset each pixel in the strip to "off". */
     public void clear() {
-        for (DotStarBridgedLED.Pixel pixel : pixels) {
-            pixel.reset();
-        }
+        Arrays.fill(this.frame, 0);
+        this.budget.reset(this.frame);
+        markAllDirty();
     }
 
     /**
@@ -114,7 +233,7 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
      * @param blue  Blue color value
      */
     public void setPixel(int index, int red, int green, int blue) {
-        this.pixels[index].setRGB(red, green, blue);
+        setPackedColor(index, (bound(red) << 16) | (bound(green) << 8) | bound(blue));
     }
 
     /**
@@ -126,7 +245,20 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
      * @see android.graphics.Color
      */
     public void setPixel(int index, int color) {
-        this.pixels[index].setColor(color);
+        // Alpha is ignored; the remaining bytes are already in 0xRRGGBB order.
+        setPackedColor(index, color & 0xFFFFFF);
+    }
+
+    /**
+     * Get the color of the pixel at index.
+     *
+     * @param index Index of the pixel to get
+     * @return      Color value (android.graphics.Color) with full alpha.
+     *
+     * @see android.graphics.Color
+     */
+    public int getPixel(int index) {
+        return 0xFF000000 | this.frame[index];
     }
 
     /**
@@ -135,7 +267,7 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
      * @return Current setting of the LED strip's length.
      */
     public int getLength() {
-        return this.pixels.length;
+        return this.frame.length;
     }
 
     /**
@@ -148,22 +280,19 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
             throw new IllegalArgumentException("LED strip length must be at least 1");
         }
 
-        int oldLength = this.pixels.length;
+        int oldLength = this.frame.length;
         this.parameters.length = length;
 
         if (oldLength == length) {
             return;
         }
-        else if (oldLength > length) {
-            this.pixels = Arrays.copyOfRange(this.pixels, 0, length);
-        }
-        else {
-            this.pixels = Arrays.copyOf(this.pixels, length);
 
-            for (int i = oldLength; i < length; i++) {
-                this.pixels[i] = new DotStarBridgedLED.Pixel(0, 0, 0);
-            }
-        }
+        // New pixels (if any) start as "off", which Arrays.copyOf gives us for free.
+        this.frame = Arrays.copyOf(this.frame, length);
+        this.budget.reset(this.frame);
+        this.shownFrame = null;
+        markAllDirty();
+        createPixelViews();
     }
 
     /**
@@ -176,6 +305,8 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
      */
     public void setController(Controller controller) {
         this.parameters.setController(controller);
+        this.budget.setMaxOutputAmps(this.parameters.maxOutputAmps);
+        configureBridge();
     }
 
     /**
@@ -190,6 +321,9 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
     /**
      * Set the maximum number of bytes to be written to the I2C bus at once.
      *
+     * The bridge itself holds at most {@value DotStarBridgeTransport#BRIDGE_BUFFER} bytes of data
+     * per write, so larger values are treated as that plus the register.
+     *
      * @param buffer Maximum bytes to write
      */
     public void setI2cMaxBuffer(int buffer) {
@@ -198,6 +332,130 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
         }
 
         this.parameters.i2cMaxBuffer = buffer;
+        configureBridge();
+    }
+
+    /**
+     * Returns the maxFrameRate setting currently in effect.
+     *
+     * @return Maximum number of frames written per second, or 0 if there is no limit.
+     */
+    public double getMaxFrameRate() {
+        return this.parameters.maxFrameRate;
+    }
+
+    /**
+     * Set the maximum number of frames written to the device each second.
+     *
+     * Calls to {@link #update()} that come sooner than this allows do not write anything. Their
+     * changes are kept, and the next update that is allowed to write sends the latest colors. This
+     * limits how much of the I2C bus the LEDs use, no matter how often update is called. Use
+     * {@link #flush()} when the latest colors must be written right away, such as in stop().
+     *
+     * @param framesPerSecond Maximum frames per second, or 0 for no limit.
+     */
+    public void setMaxFrameRate(double framesPerSecond) {
+        if (framesPerSecond < 0) {
+            throw new IllegalArgumentException("Frame rate cannot be negative");
+        }
+
+        this.parameters.maxFrameRate = framesPerSecond;
+    }
+
+    /**
+     * Returns whether writes are pipelined.
+     *
+     * @return True if every chunk of a frame is queued before waiting for any of them.
+     * @see #setPipelinedWrites(boolean)
+     */
+    public boolean isPipelinedWrites() {
+        return this.parameters.pipelineWrites;
+    }
+
+    /**
+     * Set whether to pipeline writes.
+     *
+     * Normally, each chunk of a frame waits until it has been written before the next is sent, so a
+     * long strip costs one I2C round trip per chunk. With pipelining, every chunk is queued at once
+     * and the write waits a single time at the end. Chunks are still no larger than i2cMaxBuffer.
+     *
+     * @param enabled True to queue every chunk before waiting.
+     */
+    public void setPipelinedWrites(boolean enabled) {
+        this.parameters.pipelineWrites = enabled;
+        configureBridge();
+    }
+
+    /**
+     * Returns whether chunks are aligned to pixel words.
+     *
+     * @return True if chunks are only cut between pixel words.
+     * @see #setAlignedChunks(boolean)
+     */
+    public boolean isAlignedChunks() {
+        return this.parameters.alignChunks;
+    }
+
+    /**
+     * Set whether to cut chunks only between pixel words.
+     *
+     * The bridge sends each chunk to the LEDs as its own SPI transaction. With aligned chunks, no
+     * pixel is ever split between two transactions, at the cost of up to 3 fewer bytes per chunk.
+     *
+     * @param enabled True to cut chunks only between pixel words.
+     * @see DotStarBridgeTransport#setAligned(boolean)
+     */
+    public void setAlignedChunks(boolean enabled) {
+        this.parameters.alignChunks = enabled;
+        configureBridge();
+    }
+
+    /**
+     * Returns the transport that frames are written to.
+     *
+     * @return Transport in use; the I2C/SPI bridge unless replaced.
+     */
+    public DotStarTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Send frames somewhere other than the I2C/SPI bridge.
+     *
+     * Encoding, frame rate limiting, and asynchronous output all work as before; only the last
+     * step changes. The I2C settings (i2cMaxBuffer and pipelineWrites) only apply to the bridge.
+     * Every pixel is written again by the next update.
+     *
+     * @param transport Transport to write to, or null to go back to the bridge.
+     */
+    public void setTransport(DotStarTransport transport) {
+        synchronized (writeLock) {
+            this.transport = transport == null ? bridge : transport;
+            lastWritten = null;
+        }
+
+        markAllDirty();
+    }
+
+    /**
+     * Returns the time taken by each frame written to the device so far.
+     *
+     * @return Histogram of write times, shared with the LED strip (call reset() to start over).
+     * @see #getMetrics()
+     */
+    public DotStarHistogram getWriteLatency() {
+        return metrics.getWriteTime();
+    }
+
+    /**
+     * Returns what the LED strip has cost so far: encode and write times, bytes and chunks sent,
+     * and frames sent, skipped, and current-limited.
+     *
+     * @return Metrics kept by the LED strip (call reset() to start over).
+     * @see DotStarTelemetry
+     */
+    public DotStarMetrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -223,94 +481,452 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
         }
 
         this.parameters.maxOutputAmps = amps;
+        this.budget.setMaxOutputAmps(amps);
+    }
+
+    /**
+     * Returns the gamma setting currently in effect.
+     *
+     * @return Exponent of the gamma curve applied to each color value; 1.0 if there is none.
+     */
+    public double getGamma() {
+        return this.parameters.gamma;
+    }
+
+    /**
+     * Set the gamma curve applied to each color value as it is sent to the LEDs.
+     *
+     * A gamma of 2.2 makes equal steps in color value look like equal steps in brightness, which
+     * smooths out fades among dim colors. The colors returned by getPixel are not changed.
+     *
+     * @param gamma Exponent of the gamma curve, or 1.0 for none.
+     */
+    public void setGamma(double gamma) {
+        if (!(gamma > 0)) {
+            throw new IllegalArgumentException("Gamma must be greater than 0");
+        }
+
+        this.parameters.gamma = gamma;
+        setOutputStage(createOutputStage());
+    }
+
+    /**
+     * Returns the brightness setting currently in effect.
+     *
+     * @return Brightness of the whole strip, from 1 to 31.
+     */
+    public int getBrightness() {
+        return this.parameters.brightness;
+    }
+
+    /**
+     * Set the brightness of the whole strip, using the 5-bit global brightness of each pixel.
+     *
+     * Dimming the strip this way keeps the full range of color values, rather than sending every
+     * color at a fraction of its value.
+     *
+     * @param brightness Brightness from 1 (dimmest) to 31 (full).
+     */
+    public void setBrightness(int brightness) {
+        if (brightness < 1 || brightness > DotStarOutputStage.MAX_BRIGHTNESS) {
+            throw new IllegalArgumentException("Brightness must be from 1 to 31");
+        }
+
+        this.parameters.brightness = brightness;
+        setOutputStage(createOutputStage());
+    }
+
+    /**
+     * Returns whether colors are dithered.
+     *
+     * @return True if colors are dithered over successive frames.
+     * @see #setDithering(boolean)
+     */
+    public boolean isDithering() {
+        return this.parameters.dither;
+    }
+
+    /**
+     * Set whether to dither colors over successive frames.
+     *
+     * Dithering shows levels between the 8-bit color values by rounding up on some frames and
+     * down on others. For that to work, frames must keep being written even when nothing changes,
+     * so while dithering every call to {@link #update()} writes. Set a maximum frame rate so this
+     * does not take over the I2C bus.
+     *
+     * @param enabled True to dither colors.
+     */
+    public void setDithering(boolean enabled) {
+        this.parameters.dither = enabled;
+        setOutputStage(createOutputStage());
+    }
+
+    /**
+     * Returns the current-limiting setting currently in effect.
+     *
+     * @return How the LEDs are dimmed when they would draw more than maxOutputAmps.
+     */
+    public DotStarOutputStage.Limiting getCurrentLimiting() {
+        return this.parameters.currentLimiting;
+    }
+
+    /**
+     * Set how the LEDs are dimmed when they would draw more than maxOutputAmps.
+     *
+     * Dimming the colors (the default) rounds every color value down, so dim colors lose
+     * resolution and may shift in hue. Using the 5-bit brightness of the whole strip or of each
+     * pixel instead keeps the colors as set.
+     *
+     * @param limiting Way of dimming the LEDs.
+     * @see DotStarOutputStage.Limiting
+     */
+    public void setCurrentLimiting(DotStarOutputStage.Limiting limiting) {
+        if (limiting == null) {
+            throw new IllegalArgumentException("A way of current limiting must be given");
+        }
+
+        this.parameters.currentLimiting = limiting;
+        setOutputStage(createOutputStage());
+    }
+
+    /**
+     * Returns the gamma, brightness, dithering, and current-limiting tables currently in effect.
+     *
+     * @return Output stage used to encode colors. It never changes; a new one is made when the
+     *         settings change.
+     */
+    public DotStarOutputStage getOutputStage() {
+        return outputStage;
+    }
+
+    /**
+     * Returns a number that changes whenever a pixel changes, or anything else that means every
+     * pixel must be written again (such as the length or output stage). Code that writes the same
+     * colors over and over can compare it with the last one it saw, and skip the work if the strip
+     * has not changed since.
+     *
+     * @return Generation of the pixels; only whether it changed matters.
+     */
+    public int getGeneration() {
+        return generation;
     }
 
     /**
      * Flush the current array of pixels to the device.
      *
      * We attempt to perform this update in a careful manner. Total brightness of the pixels will
-     * be reduced (possibly reducing color quality) if the projected current drawn by the pixels
-     * exceeds the maxOutputAmps setting.
+     * be reduced if the projected current drawn by the pixels exceeds the maxOutputAmps setting,
+     * in the way chosen by {@link #setCurrentLimiting}.
+     *
+     * Only the pixels that changed since the last update are encoded. DotStar LEDs have no way to
+     * address a pixel directly, so the data must always start from the first pixel, but it can
+     * stop shortly after the last changed pixel. Pixels further down the strip keep their colors.
+     *
+     * In asynchronous mode, this hands the pixels off to the writer thread (see {@link #submit()}).
+     * If a maximum frame rate is set and the last frame was too recent, nothing is written yet.
      *
      * @see DotStarBridgedLED#setMaxOutputAmps(double)
+     * @see DotStarBridgedLED#setAsynchronous(boolean)
+     * @see DotStarBridgedLED#setMaxFrameRate(double)
      * */
     public void update() {
-        // Number of bytes necessary to write out the pixels, including header and end frames.
-        int bufferLength =
-                4                               // Header frame: 1 word of zeroes
-                        + 4 * pixels.length             // Each pixel: 1 word
-                        + (pixels.length + 15) / 16;    // End frame: 1 byte for every 16 pixels.
+        // Dithering only works if frames keep coming, even when nothing has changed.
+        if (outputStage.isDithering()) {
+            markAllDirty();
+        }
 
-        // This will be written out to the I2C device once filled.
-        byte[] buffer = new byte[bufferLength];
+        // Do not write over I2C if there's nothing to change.
+        if (!hasChanges()) {
+            metrics.recordSkipped();
+            return;
+        }
 
-        // Temporarily holds just the colors from the pixels.
-        int[] colors = new int[pixels.length * 3];
+        // Too soon for another frame; keep the changes for the next update.
+        if (this.parameters.maxFrameRate > 0 && System.nanoTime() - nextFrameNanos < 0) {
+            return;
+        }
 
-        // Used to track the total expected current drawn.
-        double current = 0.0;
+        flush();
+    }
 
-        // Used to track whether a write is necessary.
-        boolean pixelsHaveChanged = false;
+    /**
+     * Flush the current array of pixels to the device, ignoring the maximum frame rate.
+     *
+     * This is the same as {@link #update()}, except that it always writes any changes. Call it
+     * when the LEDs must show the latest colors, such as at the end of an OpMode.
+     */
+    public void flush() {
+        if (!hasChanges()) {
+            metrics.recordSkipped();
+            return;
+        }
 
-        // Iterate the pixels to learn the total current drawn and collect the colors in order.
-        for (int i = 0; i < pixels.length; i++) {
-            Pixel pixel = pixels[i];
-            current += pixel.current();
+        if (this.parameters.maxFrameRate > 0) {
+            nextFrameNanos = System.nanoTime() + (long) (1e9 / this.parameters.maxFrameRate);
+        }
 
-            // When written out to the strip, we'll need the colors in BGR order.
-            colors[i * 3] = pixel.blue;
-            colors[i * 3 + 1] = pixel.green;
-            colors[i * 3 + 2] = pixel.red;
+        if (isAsynchronous()) {
+            submit();
+            return;
+        }
 
-            pixelsHaveChanged = pixelsHaveChanged || pixel.getDirty();
-            pixel.setClean();
+        if (takeShownFrame()) {
+            writeEncoded(shownFrame);
+            shownFrame = null;
+            return;
         }
 
-        // Do not write over I2C if there's nothing to change.
-        if (!pixelsHaveChanged) {
+        int low = dirtyLow, high = dirtyHigh;
+        markClean();
+
+        encodeAndWrite(frame, low, high, budget.getScale());
+    }
+
+    /**
+     * Enable or disable asynchronous output.
+     *
+     * In asynchronous mode, {@link #update()} and {@link #submit()} copy the current pixels and
+     * return immediately. A separate writer thread sends them to the LEDs. If new frames are
+     * submitted faster than the writer can send them, only the latest one is written and the
+     * others are counted as dropped. Disabling asynchronous output waits for the writer to finish
+     * the frame it is writing, then writes any changes it did not get to (or that the maximum frame rate held back) on the
+     * caller's thread, so nothing submitted is lost.
+     *
+     * @param enabled True to write from a separate thread, false to write on the caller's thread.
+     */
+    public void setAsynchronous(boolean enabled) {
+        if (enabled == isAsynchronous()) {
             return;
         }
 
-        // Ensure the total current will not exceed our theoretical maximum.
-        if (current > parameters.maxOutputAmps) {
-            double scale = parameters.maxOutputAmps / current;
+        if (enabled) {
+            Thread thread = new Thread("DotStarBridgedLED writer") {
+                public void run() {
+                    runWriter(this);
+                }
+            };
+            thread.setDaemon(true);
 
-            // Scale (reduce) each color value (0 - 255) and round down.
-            for (int i = 0; i < colors.length; i++) {
-                colors[i] = (int) Math.floor(colors[i] * scale);
+            synchronized (frameLock) {
+                writerThread = thread;
             }
+
+            thread.start();
         }
+        else {
+            Thread thread;
+
+            // Ask the writer to stop, rather than interrupting it, so a frame it is writing is
+            // written in full. Frames it has not picked up yet are left pending.
+            synchronized (frameLock) {
+                thread = writerThread;
+                writerThread = null;
+                frameLock.notifyAll();
+            }
 
-        // Skip the first four bytes (header frame).
-        for (int i = 0, j = 0; i < bufferLength; i++) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
 
-            if (i < 4) {
-                buffer[i] = 0;
-                continue;
+            // Anything the writer did not get to is written now, from the current pixels.
+            synchronized (frameLock) {
+                if (pendingHigh >= pendingLow) {
+                    dirtyLow = Math.min(dirtyLow, pendingLow);
+                    dirtyHigh = Math.max(dirtyHigh, Math.min(pendingHigh, frame.length - 1));
+                    pendingLow = Integer.MAX_VALUE;
+                    pendingHigh = -1;
+                }
+
+                if (pendingEncoded != null) {
+                    if (shownFrame == null && !isDirty()) {
+                        shownFrame = pendingEncoded;
+                    }
+                    else {
+                        // The pixels changed since, but the LEDs never showed what they changed from.
+                        markAllDirty();
+                    }
+
+                    pendingEncoded = null;
+                }
             }
 
-            // NOTE: Writing zeroes instead of 0xff reduces odd end pixels if not
-            // using the entire strip. This isn't to spec, however.
-            // If we have written all of our colors, fill in the end frame with 0x00.
-            if (j >= colors.length) {
-                buffer[i] = (byte) 0x00;
-                continue;
+            flush();
+        }
+    }
+
+    /**
+     * Checks whether asynchronous output is enabled.
+     *
+     * @return True if frames are written from a separate thread.
+     * @see #setAsynchronous(boolean)
+     */
+    public boolean isAsynchronous() {
+        return writerThread != null;
+    }
+
+    /**
+     * Hand off the current array of pixels to be written to the device.
+     *
+     * In asynchronous mode, this copies the pixels for the writer thread and returns without
+     * waiting for any I2C traffic, regardless of the maximum frame rate. Otherwise, it is the same
+     * as {@link #update()}.
+     *
+     * @see #setAsynchronous(boolean)
+     */
+    public void submit() {
+        if (!isAsynchronous()) {
+            update();
+            return;
+        }
+
+        if (!hasChanges()) {
+            metrics.recordSkipped();
+            return;
+        }
+
+        boolean encoded = takeShownFrame();
+
+        synchronized (frameLock) {
+            // An unwritten frame is replaced, so its changes must be carried over to this one.
+            if (pendingHigh >= pendingLow || pendingEncoded != null) {
+                framesDropped++;
             }
 
-            // We still have colors to write, so write {0xff, blue, green, red}.
-            if (i % 4 == 0) {
-                buffer[i] = (byte) 0xff;
-                continue;
+            if (encoded) {
+                // The encoded frame covers every pixel, so nothing else pending needs writing.
+                pendingEncoded = shownFrame;
+                pendingLow = Integer.MAX_VALUE;
+                pendingHigh = -1;
             }
+            else {
+                // The LEDs never showed the encoded frame these changes were made on.
+                if (pendingEncoded != null) {
+                    pendingEncoded = null;
+                    markAllDirty();
+                }
+
+                if (pendingFrame.length != frame.length) {
+                    pendingFrame = new int[frame.length];
+                }
+
+                System.arraycopy(frame, 0, pendingFrame, 0, frame.length);
+                pendingLow = Math.min(pendingLow, dirtyLow);
+                pendingHigh = Math.min(Math.max(pendingHigh, dirtyHigh), frame.length - 1);
+                pendingScale = budget.getScale();
+            }
+
+            framesSubmitted++;
+            frameLock.notifyAll();
+        }
+
+        shownFrame = null;
+        markClean();
+    }
+
+    /**
+     * Returns the number of frames handed off to the writer thread in asynchronous mode.
+     *
+     * @return Number of frames submitted.
+     */
+    public long getFramesSubmitted() {
+        synchronized (frameLock) {
+            return framesSubmitted;
+        }
+    }
+
+    /**
+     * Returns the number of frames the writer thread sent to the device in asynchronous mode.
+     *
+     * @return Number of frames written.
+     */
+    public long getFramesWritten() {
+        synchronized (frameLock) {
+            return framesWritten;
+        }
+    }
+
+    /**
+     * Returns the number of frames replaced by a newer frame before the writer thread sent them.
+     *
+     * @return Number of frames dropped.
+     */
+    public long getFramesDropped() {
+        synchronized (frameLock) {
+            return framesDropped;
+        }
+    }
+
+    /**
+     * Encode a frame of colors the way they would be sent to the LEDs, to show later.
+     *
+     * Encoding is the most expensive part of an update. Frames that will be shown many times (for
+     * example, an animation that repeats) can be encoded once ahead of time and then shown with
+     * {@link #show(byte[], int[])}. Colors are dimmed if necessary, using the current maxOutputAmps, and
+     * pass through the current output stage (gamma, brightness, and dithering).
+     *
+     * @param colors Color of each pixel (android.graphics.Color; alpha is ignored).
+     * @return       Encoded frame, including header and end frames.
+     */
+    public byte[] encode(int[] colors) {
+        DotStarPowerBudget frameBudget = new DotStarPowerBudget(this.parameters.maxOutputAmps);
+        frameBudget.reset(colors);
 
-            // As we write colors, progress along the colors array.
-            buffer[i] = (byte) colors[j];
-            j++;
+        return DotStarEncoder.encodeFrame(colors, frameBudget.getScale(), outputStage);
+    }
+
+    /**
+     * Set every pixel to the given colors, and write them as a frame made by
+     * {@link #encode(int[])} instead of encoding them.
+     *
+     * The pixels take on the given colors, just as if each had been set with setPixel, and are
+     * written the same way as by {@link #update()}: not until the maximum frame rate allows, and
+     * by the writer thread in asynchronous mode. Whichever update writes them sends the encoded
+     * frame, unless a pixel has been changed since. Nothing is written if the same frame was the
+     * last thing written, so encoded frames must not be changed once shown.
+     *
+     * @param encoded Encoded frame for a strip of the current length.
+     * @param colors  Colors the frame was encoded from (android.graphics.Color; alpha is ignored).
+     */
+    public void show(byte[] encoded, int[] colors) {
+        if (colors.length != this.frame.length) {
+            throw new IllegalArgumentException("Colors do not match the length of the strip");
         }
 
-        // Write to the LED strip.
-        write(buffer);
+        checkEncoded(encoded);
+
+        for (int i = 0; i < colors.length; i++) {
+            this.frame[i] = colors[i] & 0xFFFFFF;
+        }
+
+        this.budget.reset(this.frame);
+        this.shownFrame = encoded;
+        this.generation++;
+        markClean();
+
+        update();
+    }
+
+    /**
+     * Write a frame made by {@link #encode(int[])} to the device, as {@link #update()} would.
+     *
+     * The pixels as set with setPixel are not changed, but the LEDs no longer show them, so the
+     * next update writes all of them again. If the maximum frame rate holds the frame back, or
+     * in asynchronous mode the writer does not get to it first, that update replaces it. To keep
+     * the pixels in step with the LEDs, use {@link #show(byte[], int[])} instead.
+     *
+     * @param encoded Encoded frame for a strip of the current length.
+     */
+    public void show(byte[] encoded) {
+        checkEncoded(encoded);
+
+        markClean();
+        this.shownFrame = encoded;
+
+        update();
+        markAllDirty();
     }
 
 
@@ -319,46 +935,270 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
     //----------------------------------------------------------------------------------------------
 
     /**
-     * Writes out the given buffer to the LEDs via the I2C/SPI bridge.
+     * Encodes the given range of pixels with the encoder and writes the result to the device.
      *
-     * This method will attempt to write the given data in the most efficient way possible based on
-     * on the parameters.i2cMaxBuffer. In the worst case, bytes will be written one at a time. The
-     * destination register is determined by parameters.writeRegister. Atomic write waiting is used
-     * to guarantee that writes are made successfully (though not necessarily completed by the time
-     * this method returns).
+     * The caller of {@link #update()} normally calls this, or the writer thread in asynchronous
+     * mode. Encoding happens under the write lock, so the encoder is only used by one at a time.
      *
-     * @param buffer Raw data to write out, including frame boundaries and termination bytes.
+     * @param pixels Packed colors of every pixel in the strip.
+     * @param low    Index of the first changed pixel.
+     * @param high   Index of the last changed pixel.
+     * @param scale  Current-limiting scale from the power budget.
      */
-    protected void write(byte[] buffer) {
-
-        // Write the largest "chunks" possible for the I2C bus.
-        if (parameters.i2cMaxBuffer > 1) {
-            int left = 0, right;
+    private void encodeAndWrite(int[] pixels, int low, int high, int scale) {
+        synchronized (writeLock) {
+            // The LEDs show a frame the encoder did not make, so none of its bytes can be reused.
+            if (encoderStale) {
+                low = 0;
+                high = pixels.length - 1;
+                encoderStale = false;
+            }
 
-            // Use left, right to track the bounds of the next chunk to write.
-            while (left < buffer.length) {
-                // Minus one, because the register counts as a byte.
-                right = Math.min(left + parameters.i2cMaxBuffer - 1, buffer.length);
+            long start = System.nanoTime();
+            int length = encoder.encode(pixels, low, high, scale, outputStage);
+            metrics.recordEncode(System.nanoTime() - start, scale < DotStarPowerBudget.FULL_SCALE);
 
-                this.deviceClient.write(
-                        this.parameters.writeRegister,
-                        Arrays.copyOfRange(buffer, left, right),
-                        I2cWaitControl.WRITTEN
-                );
+            // Write to the LED strip.
+            write(encoder.getBuffer(), length);
+        }
+    }
 
-                left = right;
+    /**
+     * Writes a pre-encoded frame to the device, unless it was the last thing written.
+     *
+     * @param encoded Encoded frame, including header and end frames.
+     */
+    private void writeEncoded(byte[] encoded) {
+        synchronized (writeLock) {
+            if (encoded != lastWritten) {
+                write(encoded, encoded.length);
+            }
+            else {
+                metrics.recordSkipped();
             }
+
+            encoderStale = true;
         }
+    }
 
-        // If necessary, write one byte at a time.
-        else {
-            for (byte item : buffer) {
-                this.deviceClient.write8(this.parameters.writeRegister, item);
-                this.deviceClient.waitForWriteCompletions(I2cWaitControl.WRITTEN);
+    /**
+     * Checks that a pre-encoded frame fits the strip.
+     *
+     * @param encoded Encoded frame to check.
+     */
+    private void checkEncoded(byte[] encoded) {
+        if (encoded.length != DotStarEncoder.frameLength(this.frame.length)) {
+            throw new IllegalArgumentException("Encoded frame does not match the length of the strip");
+        }
+    }
+
+    /**
+     * Decides whether the next write can send the shown frame in place of the pixels. If a pixel
+     * changed since it was shown, the frame is dropped and every pixel is written instead, since
+     * the LEDs never showed the colors that pixel changed from.
+     *
+     * @return True if {@link #shownFrame} is to be written.
+     */
+    private boolean takeShownFrame() {
+        if (shownFrame == null) {
+            return false;
+        }
+
+        if (isDirty()) {
+            shownFrame = null;
+            markAllDirty();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Body of the writer thread: waits for submitted frames and writes the latest one, until
+     * asynchronous output is disabled.
+     *
+     * @param self The writer thread.
+     */
+    private void runWriter(Thread self) {
+        while (true) {
+            int low, high, scale;
+            byte[] encoded;
+
+            synchronized (frameLock) {
+                try {
+                    while (pendingHigh < pendingLow && pendingEncoded == null && writerThread == self) {
+                        frameLock.wait();
+                    }
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+
+                if (writerThread != self) {
+                    return;
+                }
+
+                // Swap buffers, so the caller can keep submitting while we write.
+                int[] swap = outputFrame;
+                outputFrame = pendingFrame;
+                pendingFrame = swap;
+
+                low = pendingLow;
+                high = pendingHigh;
+                scale = pendingScale;
+                encoded = pendingEncoded;
+                pendingLow = Integer.MAX_VALUE;
+                pendingHigh = -1;
+                pendingEncoded = null;
+            }
+
+            if (encoded != null) {
+                writeEncoded(encoded);
+            }
+            else {
+                encodeAndWrite(outputFrame, low, high, scale);
+            }
+
+            synchronized (frameLock) {
+                framesWritten++;
             }
         }
     }
 
+    /**
+     * Builds the output stage described by the gamma, brightness, dither, and current-limiting
+     * parameters.
+     *
+     * @return New output stage, or the shared one if colors pass through unchanged.
+     */
+    private DotStarOutputStage createOutputStage() {
+        DotStarOutputStage stage = new DotStarOutputStage(this.parameters.gamma,
+                this.parameters.brightness, this.parameters.dither, this.parameters.currentLimiting);
+
+        if (stage.isPassThrough() && stage.getLimiting() == DotStarOutputStage.NONE.getLimiting()) {
+            return DotStarOutputStage.NONE;
+        }
+
+        return stage;
+    }
+
+    /** Passes the I2C parameters on to the bridge transport. */
+    private void configureBridge() {
+        this.bridge.setWriteRegister(this.parameters.writeRegister);
+        this.bridge.setMaxBuffer(this.parameters.i2cMaxBuffer);
+        this.bridge.setPipelined(this.parameters.pipelineWrites);
+        this.bridge.setAligned(this.parameters.alignChunks);
+    }
+
+    /**
+     * Replaces the output stage, and notes that every pixel must be written with it.
+     *
+     * @param stage New output stage.
+     */
+    private void setOutputStage(DotStarOutputStage stage) {
+        this.outputStage = stage;
+        markAllDirty();
+    }
+
+    /**
+     * Stores a packed 0xRRGGBB color, noting that a write is necessary only if the color changed.
+     *
+     * @param index Index of the pixel to set.
+     * @param color Packed color value, without alpha.
+     */
+    private void setPackedColor(int index, int color) {
+        if (this.frame[index] != color) {
+            this.budget.replace(this.frame[index], color);
+            this.frame[index] = color;
+            this.dirtyLow = Math.min(this.dirtyLow, index);
+            this.dirtyHigh = Math.max(this.dirtyHigh, index);
+            this.generation++;
+        }
+    }
+
+    /** Notes that every pixel must be encoded and written during the next update. */
+    private void markAllDirty() {
+        this.dirtyLow = 0;
+        this.dirtyHigh = this.frame.length - 1;
+        this.generation++;
+    }
+
+    /** Notes that the LED strip matches the current pixels. */
+    private void markClean() {
+        this.dirtyLow = Integer.MAX_VALUE;
+        this.dirtyHigh = -1;
+    }
+
+    /**
+     * Returns whether any pixel has changed since the last write.
+     *
+     * @return True if changed, false if no write is necessary.
+     */
+    private boolean isDirty() {
+        return this.dirtyHigh >= this.dirtyLow;
+    }
+
+    /**
+     * Returns whether anything is waiting to be written: changed pixels, or a shown frame.
+     *
+     * @return True if the next update has something to write.
+     */
+    private boolean hasChanges() {
+        return isDirty() || this.shownFrame != null;
+    }
+
+    /**
+     * Returns the given value, clipped to the range 0 - 255.
+     *
+     * @param value Color value to clip.
+     * @return      Color value clipped to the nearest value in the range 0 - 255.
+     */
+    private static int bound(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    /** Recreates the compatibility {@link #pixels} array to match the current length. */
+    private void createPixelViews() {
+        this.pixels = new DotStarBridgedLED.Pixel[this.frame.length];
+
+        for (int i = 0; i < this.pixels.length; i++) {
+            this.pixels[i] = new DotStarBridgedLED.Pixel(this, i);
+        }
+    }
+
+    /**
+     * Writes out the given buffer to the LEDs.
+     *
+     * @param buffer Raw data to write out, including frame boundaries and termination bytes.
+     */
+    protected void write(byte[] buffer) {
+        write(buffer, buffer.length);
+    }
+
+    /**
+     * Writes out the first length bytes of the given buffer to the LEDs, through the transport.
+     *
+     * With the I2C/SPI bridge, the data is sent in chunks no larger than parameters.i2cMaxBuffer,
+     * to the register parameters.writeRegister, pipelined if parameters.pipelineWrites is set, and
+     * cut between pixel words if parameters.alignChunks is set (see
+     * {@link DotStarBridgeTransport}). The time taken, bytes, and chunks are recorded in
+     * {@link #getMetrics()}, whatever the transport.
+     *
+     * @param buffer Raw data to write out, including frame boundaries and termination bytes.
+     * @param length Number of bytes from the start of buffer to write.
+     */
+    protected void write(byte[] buffer, int length) {
+        // One frame at a time: chunks from different frames must not be mixed on the bus.
+        synchronized (writeLock) {
+            long start = System.nanoTime();
+
+            transport.write(buffer, length);
+
+            metrics.recordWrite(System.nanoTime() - start, length, DotStarCounters.chunkCount(transport, length));
+            lastWritten = buffer;
+        }
+    }
+
 
     //----------------------------------------------------------------------------------------------
     // HardwareDevice
@@ -374,6 +1214,16 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
         return Manufacturer.Adafruit;
     }
 
+    /**
+     * Writes any pending changes to the LEDs, stops the writer thread, and closes the device.
+     */
+    @Override
+    public void close() {
+        flush();
+        setAsynchronous(false);
+        super.close();
+    }
+
 
     //----------------------------------------------------------------------------------------------
     // Parameters
@@ -409,6 +1259,27 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
         /** Bridge "register" (buffer prefix) to pass-through to the LEDs. (Default: 0x01) */
         public int writeRegister = 0x01;
 
+        /** Maximum frames written per second, or 0 for no limit. (Default: no limit) */
+        public double maxFrameRate = 0;
+
+        /** Whether to queue every chunk of a frame before waiting for any. (Default: no) */
+        public boolean pipelineWrites = false;
+
+        /** Whether to cut chunks only between pixel words. (Default: no) */
+        public boolean alignChunks = false;
+
+        /** Exponent of the gamma curve applied to each color value. (Default: 1.0, none) */
+        public double gamma = 1.0;
+
+        /** Brightness of the whole strip, using the 5-bit global brightness. (Default: 31, full) */
+        public int brightness = DotStarOutputStage.MAX_BRIGHTNESS;
+
+        /** Whether to dither colors over successive frames. (Default: no) */
+        public boolean dither = false;
+
+        /** How to dim the LEDs when they would draw too much current. (Default: dim the colors) */
+        public DotStarOutputStage.Limiting currentLimiting = DotStarOutputStage.Limiting.Colors;
+
 
         //------------------------------------------------------------------------------------------
         // Construction
@@ -453,6 +1324,12 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
 
     /**
      * Pixels represent a single pixel group in the strip of LEDs, with red, green, and blue values.
+     *
+     * The pixels in {@link DotStarBridgedLED#pixels} hold no color themselves; they read and
+     * write the colors stored by their strip. A pixel made with one of the public constructors is
+     * detached: it keeps its own color and dirty flag, as in earlier versions of this class, but
+     * is not part of any strip. Putting one in the pixels array does not change the LEDs; copy its
+     * color in with setPixel instead.
      */
     public static class Pixel {
 
@@ -460,35 +1337,47 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
         // State
         //------------------------------------------------------------------------------------------
 
-        /** Value of the red channel, from 0 to 255. */
-        private int red;
+        /** Strip holding the colors of this pixel, or null if detached. */
+        private final DotStarBridgedLED strip;
 
-        /** Value of the blue channel, from 0 to 255. */
-        private int blue;
+        /** Position of this pixel in the strip. */
+        private final int index;
 
-        /** Value of the green channel, from 0 to 255. */
-        private int green;
+        /** Color of a detached pixel, packed as 0xRRGGBB. */
+        private int color;
 
-        /** Whether the pixel has been written to the LED strip. True if a write is necessary. */
+        /** Whether a detached pixel has changed since it was last marked clean. */
         private boolean dirty;
 
         /** Estimate of maximum amps drawn per color. */
-        public static final double ampsDrawn = 0.02;
+        public static final double ampsDrawn = DotStarPowerBudget.AMPS_PER_COLOR;
 
 
         //------------------------------------------------------------------------------------------
         // Construction
         //------------------------------------------------------------------------------------------
 
+        /** Creates a detached pixel, initially "off". */
         public Pixel() {
+            this(null, -1);
             reset();
         }
 
+        /**
+         * Creates a detached pixel with the given color values.
+         *
+         * @param red   Red color value.
+         * @param green Green color value.
+         * @param blue  Blue color value.
+         */
         public Pixel(int red, int green, int blue) {
-            this.red = bound(red);
-            this.blue = bound(blue);
-            this.green = bound(green);
-            this.dirty = true;
+            this(null, -1);
+            setRGB(red, green, blue);
+        }
+
+        private Pixel(DotStarBridgedLED strip, int index) {
+            this.strip = strip;
+            this.index = index;
         }
 
 
@@ -502,7 +1391,7 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
          * @return Estimated current drawn (in amps).
          */
         public double current() {
-            return (red + blue + green) / 255.0 * ampsDrawn;
+            return (getRed() + getBlue() + getGreen()) / 255.0 * ampsDrawn;
         }
 
 
@@ -510,10 +1399,7 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
          * Resets the pixel to "off" with values (0, 0, 0).
          */
         public void reset() {
-            this.red = 0;
-            this.blue = 0;
-            this.green = 0;
-            this.dirty = true;
+            setRGB(0, 0, 0);
         }
 
 
@@ -525,10 +1411,13 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
          * @param blue  Blue color value.
          */
         public void setRGB(int red, int green, int blue) {
-            this.red = bound(red);
-            this.blue = bound(blue);
-            this.green = bound(green);
-            this.dirty = true;
+            if (strip != null) {
+                strip.setPixel(index, red, green, blue);
+            }
+            else {
+                this.color = (bound(red) << 16) | (bound(green) << 8) | bound(blue);
+                this.dirty = true;
+            }
         }
 
         /**
@@ -539,26 +1428,51 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
          * @see android.graphics.Color
          */
         public void setColor(int color) {
-            this.red = bound(Color.red(color));
-            this.blue = bound(Color.blue(color));
-            this.green = bound(Color.green(color));
-            this.dirty = true;
+            setRGB(Color.red(color), Color.green(color), Color.blue(color));
+        }
+
+        /** @return Value of the red channel, from 0 to 255. */
+        public int getRed() {
+            return Color.red(packedColor());
+        }
+
+        /** @return Value of the green channel, from 0 to 255. */
+        public int getGreen() {
+            return Color.green(packedColor());
+        }
+
+        /** @return Value of the blue channel, from 0 to 255. */
+        public int getBlue() {
+            return Color.blue(packedColor());
         }
 
         /**
          * Notes that the pixel has been written, and need not be written again until changed.
+         *
+         * Only detached pixels keep their own dirty flag. For pixels of a strip, this does nothing:
+         * the strip notes what has been written as it updates.
          */
         public void setClean() {
-            this.dirty = false;
+            if (strip == null) {
+                this.dirty = false;
+            }
         }
 
         /**
          * Checks whether the pixel has been changed since its last write.
          *
+         * For pixels of a strip, this is true if the pixel is part of the range of pixels that
+         * changed since the last update.
+         *
          * @return True if changed, false if no write is necessary.
          */
         public boolean getDirty() {
-            return this.dirty;
+            if (strip == null) {
+                return this.dirty;
+            }
+
+            int low = strip.dirtyLow, high = strip.dirtyHigh;
+            return index >= low && index <= high;
         }
 
 
@@ -566,14 +1480,9 @@ public class DotStarBridgedLED extends I2cDeviceSynchDeviceWithParameters<I2cDev
         // Utility
         //------------------------------------------------------------------------------------------
 
-        /**
-         * Returns the given value, clipped to the range 0 - 255.
-         *
-         * @param value Color value to clip.
-         * @return      Color value clipped to the nearest value in the range 0 - 255.
-         */
-        private int bound(int value) {
-            return Math.max(0, Math.min(255, value));
+        /** @return Color of this pixel, from its strip if attached. */
+        private int packedColor() {
+            return strip != null ? strip.getPixel(index) : this.color;
         }
     }
 
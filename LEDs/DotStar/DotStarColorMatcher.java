@@ -38,6 +38,9 @@ public class DotStarColorMatcher extends OpMode {
 
         // Set the length of the strip.
         leds.setLength(30);
+
+        // The loop runs much faster than anyone can see, so don't fill the I2C bus with LED writes.
+        leds.setMaxFrameRate(30);
     }
 
     @Override
@@ -65,9 +68,15 @@ public class DotStarColorMatcher extends OpMode {
         telemetry.addData("Output RGB", "" + red + " " + green + " " + blue);
 
         // Update the LEDs with the scaled colors.
-        for (int i = 0; i < leds.pixels.length; i++) {
+        for (int i = 0; i < leds.getLength(); i++) {
             leds.setPixel(i, red, green, blue);
         }
         leds.update();
     }
+
+    @Override
+    public void stop() {
+        // Make sure the last colors set are shown, even if they came too soon to be written.
+        leds.flush();
+    }
 }
@@ -0,0 +1,179 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Joins several DotStar LED strips into one long row of pixels, and writes them all at once.
+ *
+ * A robot may have LED strips on more than one hub. Rather than updating each strip in turn, add
+ * them all to a compositor and draw onto the compositor as if it were a single strip. Each strip
+ * (or part of a strip) takes up the next pixels of the compositor, in the order they are added:
+ *
+ * <pre>
+ *     DotStarCompositor all = new DotStarCompositor();
+ *     all.addStrip(leftLeds);                   // Pixels 0 - 29
+ *     all.addStrip(rightLeds, 0, 30, true);     // Pixels 30 - 59, last pixel of the strip first
+ *
+ *     all.setPixel(45, Color.RED);
+ *     all.update();
+ *
+ *     // In the OpMode's stop():
+ *     all.close();
+ * </pre>
+ *
+ * Strips added to a compositor are switched to asynchronous output (see
+ * {@link DotStarBridgedLED#setAsynchronous(boolean)}). Each strip then has its own writer thread,
+ * so {@link #update()} only hands the new colors off and strips on different hubs are written at
+ * the same time. Adding more strips adds very little to the time the loop spends on LEDs.
+ *
+ * The strips are hardware devices, and outlive the OpMode. Call {@link #close()} when the OpMode
+ * stops, so the last colors are written and the writer threads end.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.1.0
+ */
+public class DotStarCompositor implements DotStarFrameBuffer {
+
+    //----------------------------------------------------------------------------------------------
+    // State
+    //----------------------------------------------------------------------------------------------
+
+    /** Every strip added, without repeats, in the order they were added. */
+    private final List<DotStarBridgedLED> strips = new ArrayList<DotStarBridgedLED>();
+
+    /** Strip holding each pixel of the compositor. */
+    private DotStarBridgedLED[] pixelStrips = new DotStarBridgedLED[0];
+
+    /** Index within its strip of each pixel of the compositor. */
+    private int[] pixelIndexes = new int[0];
+
+
+    //----------------------------------------------------------------------------------------------
+    // Public API
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Add every pixel of a strip to the end of the compositor.
+     *
+     * The strip's length is read now; set the length of the strip before adding it.
+     *
+     * @param strip LED strip to add.
+     */
+    public void addStrip(DotStarBridgedLED strip) {
+        addStrip(strip, 0, strip.getLength(), false);
+    }
+
+    /**
+     * Add some of the pixels of a strip to the end of the compositor.
+     *
+     * Different parts of the same strip may be added separately, in any order.
+     *
+     * @param strip    LED strip holding the pixels.
+     * @param offset   Index within the strip of the first pixel to add.
+     * @param length   Number of pixels to add.
+     * @param reversed True to add the pixels from last to first.
+     */
+    public void addStrip(DotStarBridgedLED strip, int offset, int length, boolean reversed) {
+        if (offset < 0 || length < 1 || offset + length > strip.getLength()) {
+            throw new IllegalArgumentException("Pixels to add must be within the strip");
+        }
+
+        int start = pixelStrips.length;
+        DotStarBridgedLED[] newStrips = new DotStarBridgedLED[start + length];
+        int[] newIndexes = new int[start + length];
+
+        System.arraycopy(pixelStrips, 0, newStrips, 0, start);
+        System.arraycopy(pixelIndexes, 0, newIndexes, 0, start);
+
+        for (int i = 0; i < length; i++) {
+            newStrips[start + i] = strip;
+            newIndexes[start + i] = reversed ? offset + length - 1 - i : offset + i;
+        }
+
+        pixelStrips = newStrips;
+        pixelIndexes = newIndexes;
+
+        if (!strips.contains(strip)) {
+            strips.add(strip);
+            strip.setAsynchronous(true);
+        }
+    }
+
+    /**
+     * Get the number of pixels in all of the strips added so far.
+     *
+     * @return Total number of pixels.
+     */
+    public int getLength() {
+        return pixelStrips.length;
+    }
+
+    /**
+     * Get the color of the pixel at index.
+     *
+     * @param index Index of the pixel to get
+     * @return      Color value (android.graphics.Color) with full alpha.
+     */
+    public int getPixel(int index) {
+        return pixelStrips[index].getPixel(pixelIndexes[index]);
+    }
+
+    /**
+     * Set the pixel at index with the given color value.
+     *
+     * @param index Index of the pixel to set
+     * @param color Color value (android.graphics.Color)
+     */
+    public void setPixel(int index, int color) {
+        pixelStrips[index].setPixel(pixelIndexes[index], color);
+    }
+
+    /**
+     * Reset each pixel of the compositor to "off". Pixels of the strips that were not added are
+     * left alone.
+     */
+    public void clear() {
+        for (int i = 0; i < pixelStrips.length; i++) {
+            pixelStrips[i].setPixel(pixelIndexes[i], 0);
+        }
+    }
+
+    /**
+     * Hand the current colors of every strip to its writer. Strips with nothing new are skipped,
+     * and each strip's maximum frame rate still applies.
+     *
+     * @see DotStarBridgedLED#update()
+     */
+    public void update() {
+        for (DotStarBridgedLED strip : strips) {
+            strip.update();
+        }
+    }
+
+    /**
+     * Hand the current colors of every strip to its writer, ignoring maximum frame rates.
+     *
+     * @see DotStarBridgedLED#flush()
+     */
+    public void flush() {
+        for (DotStarBridgedLED strip : strips) {
+            strip.flush();
+        }
+    }
+
+    /**
+     * Write the current colors of every strip, and stop their writer threads.
+     *
+     * Each strip goes back to writing on the caller's thread, so it can still be updated on its
+     * own, or added to a new compositor. Call this from the OpMode's stop().
+     *
+     * @see DotStarBridgedLED#setAsynchronous(boolean)
+     */
+    public void close() {
+        for (DotStarBridgedLED strip : strips) {
+            strip.flush();
+            strip.setAsynchronous(false);
+        }
+    }
+}
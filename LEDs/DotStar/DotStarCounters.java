@@ -0,0 +1,130 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * Keeps the {@link DotStarMetrics} of an LED strip, as the LED classes report what they do.
+ *
+ * Recording and reading may happen on different threads. Recording never allocates memory, so it
+ * is safe to do on every frame.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.0.0
+ */
+public class DotStarCounters implements DotStarMetrics {
+
+    //----------------------------------------------------------------------------------------------
+    // State
+    //----------------------------------------------------------------------------------------------
+
+    /** Time taken to encode each frame. */
+    private final DotStarHistogram encodeTime = new DotStarHistogram();
+
+    /** Time taken to write each frame. */
+    private final DotStarHistogram writeTime = new DotStarHistogram();
+
+    /** Counts of bytes, chunks, and frames. */
+    private long bytesSent, chunksSent, framesSent, framesSkipped, framesLimited;
+
+
+    //----------------------------------------------------------------------------------------------
+    // Recording
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Records one frame encoded for sending.
+     *
+     * @param nanos   Time taken to encode (in nanoseconds).
+     * @param limited True if the frame was dimmed to limit current.
+     */
+    public void recordEncode(long nanos, boolean limited) {
+        encodeTime.record(nanos);
+
+        if (limited) {
+            synchronized (this) {
+                framesLimited++;
+            }
+        }
+    }
+
+    /**
+     * Records one frame written to the transport.
+     *
+     * @param nanos  Time taken to write (in nanoseconds).
+     * @param bytes  Number of bytes written.
+     * @param chunks Number of separate writes the bytes were sent in.
+     */
+    public void recordWrite(long nanos, int bytes, int chunks) {
+        writeTime.record(nanos);
+
+        synchronized (this) {
+            bytesSent += bytes;
+            chunksSent += chunks;
+            framesSent++;
+        }
+    }
+
+    /** Records one update that sent nothing, because no pixel had changed. */
+    public synchronized void recordSkipped() {
+        framesSkipped++;
+    }
+
+    /**
+     * Returns the number of separate writes a transport sends a number of bytes in.
+     *
+     * @param transport Transport the bytes are written to.
+     * @param length    Number of bytes written.
+     * @return          Number of I2C writes for the bridge, or 1 for any other transport.
+     */
+    public static int chunkCount(DotStarTransport transport, int length) {
+        if (transport instanceof DotStarBridgeTransport) {
+            return ((DotStarBridgeTransport) transport).getChunkCount(length);
+        }
+
+        return 1;
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // DotStarMetrics
+    //----------------------------------------------------------------------------------------------
+
+    public DotStarHistogram getEncodeTime() {
+        return encodeTime;
+    }
+
+    public DotStarHistogram getWriteTime() {
+        return writeTime;
+    }
+
+    public synchronized long getBytesSent() {
+        return bytesSent;
+    }
+
+    public synchronized long getChunksSent() {
+        return chunksSent;
+    }
+
+    public synchronized long getFramesSent() {
+        return framesSent;
+    }
+
+    public synchronized long getFramesSkipped() {
+        return framesSkipped;
+    }
+
+    public synchronized long getFramesLimited() {
+        return framesLimited;
+    }
+
+    public void reset() {
+        encodeTime.reset();
+        writeTime.reset();
+
+        synchronized (this) {
+            bytesSent = 0;
+            chunksSent = 0;
+            framesSent = 0;
+            framesSkipped = 0;
+            framesLimited = 0;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.Arrays;
+
+/**
+ * Builds the bytes sent to a DotStar LED strip, reusing one buffer from frame to frame.
+ *
+ * A DotStar frame is a header of four zero bytes, one 4-byte word per pixel, and an end frame of
+ * one byte for every 16 pixels. The header, end frame, and (unless the output stage says otherwise)
+ * the first byte of each pixel word never change, so they are filled in once when the buffer is
+ * created. Each frame after that only fills in the pixels that changed, through a
+ * {@link DotStarOutputStage}.
+ *
+ * A frame that stops partway down the strip still ends with a real end frame of zeroes. Each pixel
+ * delays the clock by half a cycle as it passes the data on, so the last pixel sent needs one more
+ * clock edge for every two pixels before it to latch its word. Sending the words of the pixels that
+ * follow instead leaves the next pixel holding part of a word, which the next frame's header then
+ * completes with garbage. ({@link DotStarSimulator} does not model the delay, so it cannot show
+ * this.)
+ *
+ * Both {@link DotStarLED} and {@link DotStarBridgedLED} encode with this class and then hand the
+ * bytes to a {@link DotStarTransport}, so improvements here help every way of driving the LEDs.
+ *
+ * An encoder is not thread-safe; only one thread at a time may encode with it.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.0.1
+ */
+public class DotStarEncoder {
+
+    //----------------------------------------------------------------------------------------------
+    // State
+    //----------------------------------------------------------------------------------------------
+
+    /** Encoded bytes for the whole strip, in the order they are sent to the LEDs. */
+    private byte[] buffer;
+
+    /** Number of pixels the buffer was created for. */
+    private int length;
+
+    /** Bytes of pixel words covered by the end frame of a partial frame, to restore later. */
+    private byte[] covered;
+
+    /** Where in the buffer the covered bytes belong, and how many there are. */
+    private int coveredOffset, coveredLength;
+
+    /** Current-limiting scale used when the buffer was last encoded. */
+    private int lastScale = DotStarPowerBudget.FULL_SCALE;
+
+    /** Output stage used when the buffer was last encoded. */
+    private DotStarOutputStage lastStage = DotStarOutputStage.NONE;
+
+    /** Number of frames encoded so far, which chooses the dithering. */
+    private int frames;
+
+
+    //----------------------------------------------------------------------------------------------
+    // Public API
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Encodes the given range of pixels into the buffer, and works out how much must be sent.
+     *
+     * DotStar LEDs have no way to address a pixel directly, so the data must always start from the
+     * first pixel, but it can stop shortly after the last changed pixel. Pixels further down the
+     * strip keep their colors. Every pixel is encoded again if the length, scale, or output stage
+     * changed since the last frame.
+     *
+     * @param pixels Packed colors (0xRRGGBB) of every pixel in the strip.
+     * @param low    Index of the first changed pixel.
+     * @param high   Index of the last changed pixel.
+     * @param scale  Current-limiting scale from the power budget.
+     * @param stage  Output stage to encode the colors with.
+     * @return       Number of bytes from the start of {@link #getBuffer()} to send.
+     */
+    public int encode(int[] pixels, int low, int high, int scale, DotStarOutputStage stage) {
+        // A new length means nothing in the buffer can be reused.
+        if (buffer == null || length != pixels.length) {
+            buffer = newFrame(pixels.length);
+            covered = new byte[(pixels.length + 15) / 16];
+            coveredLength = 0;
+            length = pixels.length;
+            low = 0;
+            high = pixels.length - 1;
+        }
+
+        // Put back the pixel words the last end frame was written over.
+        System.arraycopy(covered, 0, buffer, coveredOffset, coveredLength);
+        coveredLength = 0;
+
+        // If the scale or output stage changed, every pixel already on the strip is wrong.
+        if (scale != lastScale || stage != lastStage) {
+            low = 0;
+            high = pixels.length - 1;
+            lastScale = scale;
+            lastStage = stage;
+        }
+
+        stage.encode(pixels, low, high, scale, frames++, buffer);
+
+        // Pixels 0 through high must be sent, followed by an end frame of 1 byte for every 16
+        // pixels. Unless the frame covers the whole strip, the end frame goes over the words of
+        // the pixels that follow, which are kept aside until the next frame.
+        int count = high + 1;
+        int end = 4 + 4 * count;
+        int endBytes = (count + 15) / 16;
+
+        if (count < length) {
+            System.arraycopy(buffer, end, covered, 0, endBytes);
+            Arrays.fill(buffer, end, end + endBytes, (byte) 0);
+            coveredOffset = end;
+            coveredLength = endBytes;
+        }
+
+        return end + endBytes;
+    }
+
+    /**
+     * Returns the buffer filled in by {@link #encode}. It is reused by the next frame, and only the
+     * number of bytes returned by encode are meaningful.
+     *
+     * @return Encoded frame, or null if nothing has been encoded yet.
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Encodes a whole frame into a new array, to keep and show later.
+     *
+     * @param pixels Packed colors (0xRRGGBB) of every pixel in the strip.
+     * @param scale  Current-limiting scale from the power budget.
+     * @param stage  Output stage to encode the colors with.
+     * @return       Encoded frame, including header and end frames.
+     */
+    public static byte[] encodeFrame(int[] pixels, int scale, DotStarOutputStage stage) {
+        byte[] frame = newFrame(pixels.length);
+        stage.encode(pixels, 0, pixels.length - 1, scale, 0, frame);
+        return frame;
+    }
+
+    /**
+     * Returns the number of bytes necessary to write out the pixels, including header and end frames.
+     *
+     * @param length Number of pixels in the strip.
+     * @return       Size of an encoded frame (in bytes).
+     */
+    public static int frameLength(int length) {
+        return 4                                // Header frame: 1 word of zeroes
+                + 4 * length                    // Each pixel: 1 word
+                + (length + 15) / 16;           // End frame: 1 byte for every 16 pixels.
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Utility
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a buffer to hold an encoded frame, with its fixed bytes already in place.
+     *
+     * @param length Number of pixels in the strip.
+     * @return       Buffer with the header frame, pixel header bytes, and end frame filled in.
+     */
+    private static byte[] newFrame(int length) {
+        // The header frame is left as zeroes, and so is the end frame.
+        // NOTE: Writing zeroes instead of 0xff reduces odd end pixels if not
+        // using the entire strip. This isn't to spec, however.
+        byte[] buffer = new byte[frameLength(length)];
+
+        // Each pixel word starts with 0xff (full brightness), followed by the colors in BGR order.
+        // The output stage may change the brightness as it fills in the colors.
+        for (int i = 0; i < length; i++) {
+            buffer[4 + i * 4] = (byte) 0xff;
+        }
+
+        return buffer;
+    }
+}
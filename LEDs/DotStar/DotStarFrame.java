@@ -0,0 +1,49 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * A row of pixel colors held in memory, not connected to any LEDs.
+ *
+ * Draw on a frame to work out colors ahead of time, then pass {@link #getColors()} to
+ * {@link DotStarBridgedLED#encode(int[])} to get bytes that can be shown later.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.0.0
+ */
+public class DotStarFrame implements DotStarFrameBuffer {
+
+    /** Packed colors of each pixel, one 0xRRGGBB value per pixel. */
+    private final int[] colors;
+
+    /**
+     * @param length Number of pixels in the frame. Every pixel starts "off".
+     */
+    public DotStarFrame(int length) {
+        if (length < 1) {
+            throw new IllegalArgumentException("Frame length must be at least 1");
+        }
+
+        this.colors = new int[length];
+    }
+
+    public int getLength() {
+        return colors.length;
+    }
+
+    public int getPixel(int index) {
+        return 0xFF000000 | colors[index];
+    }
+
+    public void setPixel(int index, int color) {
+        colors[index] = color & 0xFFFFFF;
+    }
+
+    /**
+     * Get the colors of every pixel. The array belongs to the frame, so it changes as pixels are
+     * set; copy it if it must be kept.
+     *
+     * @return Packed colors (0xRRGGBB) of each pixel.
+     */
+    public int[] getColors() {
+        return colors;
+    }
+}
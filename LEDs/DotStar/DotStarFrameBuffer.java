@@ -0,0 +1,39 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * A row of pixels that can be colored, such as an LED strip or part of one.
+ *
+ * Code that only needs to set colors (patterns, for example) can be written against this interface
+ * instead of a particular LED class. Then the same code can draw onto a whole strip, several
+ * strips joined together ({@link DotStarCompositor}), or a simulated strip.
+ *
+ * Setting a color does not send it to the LEDs. Whoever owns the LEDs decides when to do that.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.0.0
+ */
+public interface DotStarFrameBuffer {
+
+    /**
+     * Get the number of pixels.
+     *
+     * @return Number of pixels that can be set.
+     */
+    int getLength();
+
+    /**
+     * Get the color of the pixel at index.
+     *
+     * @param index Index of the pixel to get, from 0 to getLength() - 1.
+     * @return      Color value (android.graphics.Color) with full alpha.
+     */
+    int getPixel(int index);
+
+    /**
+     * Set the pixel at index with the given color value.
+     *
+     * @param index Index of the pixel to set, from 0 to getLength() - 1.
+     * @param color Color value (android.graphics.Color); alpha is ignored.
+     */
+    void setPixel(int index, int color);
+}
@@ -0,0 +1,133 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * Counts how long something took, grouped into buckets that double in size.
+ *
+ * Bucket 0 holds times under 1 microsecond, bucket 1 holds times from 1 up to 2 microseconds,
+ * bucket 2 from 2 up to 4, and so on. The last bucket holds everything longer. This keeps the
+ * histogram small and fixed in size, and recording a time never allocates memory, so it is safe to
+ * use on every frame. Percentiles are reported as the upper edge of the bucket they fall in, which
+ * is accurate to within a factor of two.
+ *
+ * Recording and reading may happen on different threads.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.0.0
+ */
+public class DotStarHistogram {
+
+    /** Number of buckets. The last one (2^30 microseconds and up) is about 18 minutes. */
+    public static final int BUCKETS = 32;
+
+    /** Number of samples in each bucket. */
+    private final long[] counts = new long[BUCKETS];
+
+    /** Total number of samples, and the sum and largest of their times (in nanoseconds). */
+    private long count, totalNanos, maxNanos;
+
+    /**
+     * Adds one sample.
+     *
+     * @param nanos Time taken (in nanoseconds).
+     */
+    public synchronized void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        counts[bucketOf(nanos / 1000)]++;
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /** Removes all samples. */
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = 0;
+        }
+
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    /** @return Number of samples recorded. */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the number of samples in one bucket.
+     *
+     * @param bucket Bucket index, from 0 to {@link #BUCKETS} - 1.
+     * @return       Number of samples in the bucket.
+     */
+    public synchronized long getBucketCount(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * Gets the smallest time that falls in a bucket.
+     *
+     * @param bucket Bucket index, from 0 to {@link #BUCKETS} - 1.
+     * @return       Lower edge of the bucket (in microseconds).
+     */
+    public static long getBucketMicros(int bucket) {
+        return bucket == 0 ? 0 : 1L << (bucket - 1);
+    }
+
+    /** @return Average time (in microseconds), or 0 if there are no samples. */
+    public synchronized double getMeanMicros() {
+        return count == 0 ? 0.0 : totalNanos / 1000.0 / count;
+    }
+
+    /** @return Longest time (in microseconds) recorded. */
+    public synchronized double getMaxMicros() {
+        return maxNanos / 1000.0;
+    }
+
+    /**
+     * Gets an upper bound on the given percentile.
+     *
+     * @param percentile Percentile to find, from 0 to 100.
+     * @return           Upper edge of the bucket holding the percentile (in microseconds), or 0 if
+     *                   there are no samples.
+     */
+    public synchronized long getPercentileMicros(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = (long) Math.ceil(count * Math.max(0.0, Math.min(100.0, percentile)) / 100.0);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += counts[i];
+
+            if (seen >= target) {
+                return getBucketMicros(i + 1);
+            }
+        }
+
+        return (long) Math.ceil(getMaxMicros());
+    }
+
+    /** @return Summary suitable for telemetry, with times in microseconds. */
+    @Override
+    public synchronized String toString() {
+        return String.format("n=%d mean=%.0f p50<%d p99<%d max=%.0f us",
+                count, getMeanMicros(), getPercentileMicros(50), getPercentileMicros(99), getMaxMicros());
+    }
+
+    /**
+     * Finds the bucket for a time.
+     *
+     * @param micros Time (in microseconds).
+     * @return       Bucket index.
+     */
+    private static int bucketOf(long micros) {
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+}
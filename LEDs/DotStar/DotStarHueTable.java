@@ -0,0 +1,81 @@
+package org.firstinspires.ftc.teamcode;
+
+import android.graphics.Color;
+
+/**
+ * A precomputed table of colors around the color wheel, for fast rainbow effects.
+ *
+ * Converting a hue to RGB with Color.HSVToColor takes a fair bit of floating-point math, and
+ * needs a new float array every time. Rainbow effects do this for every pixel in every frame. This
+ * class does all of the conversions once, when it is created, at a fixed saturation and value.
+ * Afterwards, looking up a color is as cheap as reading an array.
+ *
+ * Hues are divided into a number of steps around the wheel. With 360 steps, each step is one
+ * degree, which is plenty for LEDs at low brightness. Create one table for each saturation and
+ * value you need, and keep it in a static field so it is only built once:
+ *
+ * <pre>
+ *     private static final DotStarHueTable HUES = new DotStarHueTable(360, 1.0f, 0.25f);
+ *     ...
+ *     leds.setPixel(i, HUES.getColorAtStep(i * 18));
+ * </pre>
+ *
+ * @author AJ Foster and Rick Van Smith
+ * @version 1.0.0
+ */
+public class DotStarHueTable {
+
+    /** Packed ARGB colors, one for each step around the color wheel. */
+    private final int[] colors;
+
+    /**
+     * Builds the table. This is relatively slow, so do it once during initialization.
+     *
+     * @param steps      Number of hues around the color wheel (360 gives one per degree).
+     * @param saturation Saturation of every color, from 0.0 to 1.0.
+     * @param value      Value (brightness) of every color, from 0.0 to 1.0.
+     */
+    public DotStarHueTable(int steps, float saturation, float value) {
+        if (steps < 1) {
+            throw new IllegalArgumentException("A hue table needs at least one step");
+        }
+
+        colors = new int[steps];
+        float[] hsv = new float[]{0f, saturation, value};
+
+        for (int i = 0; i < steps; i++) {
+            hsv[0] = i * 360f / steps;
+            colors[i] = Color.HSVToColor(hsv);
+        }
+    }
+
+    /**
+     * Gets the number of hues in the table.
+     *
+     * @return Number of steps around the color wheel.
+     */
+    public int getSteps() {
+        return colors.length;
+    }
+
+    /**
+     * Gets the color at a step around the color wheel. Steps past the end wrap around.
+     *
+     * @param step Step around the wheel; any value, including negative values, is allowed.
+     * @return     Color value (android.graphics.Color).
+     */
+    public int getColorAtStep(int step) {
+        int index = step % colors.length;
+        return colors[index < 0 ? index + colors.length : index];
+    }
+
+    /**
+     * Gets the color nearest to the given hue.
+     *
+     * @param hue Hue in degrees; values outside 0 - 360 wrap around.
+     * @return    Color value (android.graphics.Color).
+     */
+    public int getColor(double hue) {
+        return getColorAtStep((int) Math.floor(hue * colors.length / 360.0));
+    }
+}
@@ -4,6 +4,8 @@ import android.graphics.Color;
 
 import com.qualcomm.robotcore.hardware.DigitalChannel;
 
+import java.util.Arrays;
+
 /**
  * Represents a DotStar LED strip when plugged in to two digital IO channels.
  *
@@ -25,9 +27,12 @@ import com.qualcomm.robotcore.hardware.DigitalChannel;
  * allows for 1.5 amps of current (as allowed by the REV Expansion Hub). If you are using a legacy
  * Modern Robotics Core DIM, this limit is too high.
  *
+ * Colors are encoded by a {@link DotStarEncoder}, the same as {@link DotStarBridgedLED}, and sent
+ * by a {@link DotStarBitBangTransport}. Any other {@link DotStarTransport} can be given instead.
+ *
  * @author AJ Foster and Mike Nicolai
  * @author Rick Van Smith
- * @version 1.1.0
+ * @version 1.4.0
  */
 public class DotStarLED {
 
@@ -35,20 +40,40 @@ public class DotStarLED {
     // State
     //----------------------------------------------------------------------------------------------
 
-    /** Array of pixels that will be written to the LEDs on {@link #update()}. */
+    /**
+     * Packed colors of the pixels that will be written to the LEDs on {@link #update()}, one
+     * 0xRRGGBB value per pixel.
+     */
+    private int[] frame;
+
+    /** Whether any pixel has changed since the last write. True if a write is necessary. */
+    private boolean dirty;
+
+    /**
+     * Array of views onto the pixels that will be written to the LEDs on {@link #update()}.
+     *
+     * This is kept for code written against earlier versions of this class. The views read and
+     * write through to the strip's colors, and are only recreated when the length changes.
+     *
+     * @deprecated Use {@link #getLength()}, {@link #getPixel(int)} and {@link #setPixel(int, int)}.
+     */
+    @Deprecated
     public DotStarLED.Pixel[] pixels;
 
-    /** Digital IO channels used for the clock and data lines. */
-    private DigitalChannel clock, data;
+    /** Tracks the current drawn by the pixels as they change, and how much to dim them. */
+    private DotStarPowerBudget budget = new DotStarPowerBudget(1.5); // Default to REV Expansion Hub.
 
-    /** Length of the LED strip (number of pixels). */
-    private int length;
+    /** Encodes the strip, reusing its buffer from frame to frame. */
+    private final DotStarEncoder encoder = new DotStarEncoder();
 
-    /** Maximum output current (in amps) as determined by the hardware. */
-    private double maxOutputAmps = 1.5; // Default to REV Expansion Hub.
+    /** Gamma, brightness, and dithering tables used to encode colors. */
+    private DotStarOutputStage outputStage = DotStarOutputStage.NONE;
 
-    /** Last set of colors written to the LEDs. */
-    private int[] colors;
+    /** Transport the encoded bytes are written to. */
+    private final DotStarTransport transport;
+
+    /** Time spent encoding and writing, and how much was sent. */
+    private final DotStarCounters metrics = new DotStarCounters();
 
 
     //----------------------------------------------------------------------------------------------
@@ -62,22 +87,21 @@ public class DotStarLED {
      * @param data      Digital IO channel for the data line.
      */
     public DotStarLED(int length, DigitalChannel clock, DigitalChannel data) {
-        // Assign digital IO channels.
-        this.clock = clock;
-        this.data = data;
-
-        // Prepare both digital channels for output.
-        this.clock.setMode(DigitalChannel.Mode.OUTPUT);
-        this.data.setMode(DigitalChannel.Mode.OUTPUT);
+        this(length, new DotStarBitBangTransport(clock, data));
+    }
 
-        // Prepare memory for the array of pixels.
-        this.length = length;
-        this.pixels = new Pixel[length];
-        this.colors = new int[length * 3];
+    /**
+     *
+     * @param length    Number of LEDs present in the strip.
+     * @param transport Transport to write the encoded bytes to.
+     */
+    public DotStarLED(int length, DotStarTransport transport) {
+        this.transport = transport;
 
-        for (int i = 0; i < length; i++) {
-            pixels[i] = new Pixel(0, 0, 0);
-        }
+        // Prepare memory for the array of pixels. Everything starts "off".
+        this.frame = new int[length];
+        this.dirty = true;
+        createPixelViews();
     }
 
 
@@ -89,9 +113,9 @@ public class DotStarLED {
      * Mark all pixels to be reset during the next update.
      */
     public void clear() {
-        for (Pixel pixel : pixels) {
-            pixel.reset();
-        }
+        Arrays.fill(frame, 0);
+        budget.reset(frame);
+        dirty = true;
     }
 
 
@@ -101,9 +125,7 @@ public class DotStarLED {
      * @param flush Whether to immediately update the pixels.
      */
     public void clear(boolean flush) {
-        for (Pixel pixel : pixels) {
-            pixel.reset();
-        }
+        clear();
 
         if (flush) {
             update();
@@ -111,13 +133,53 @@ public class DotStarLED {
     }
 
 
+    /**
+     * Set the pixel at index with the given color values.
+     *
+     * @param index Index of the pixel to set
+     * @param red   Red color value
+     * @param green Green color value
+     * @param blue  Blue color value
+     */
+    public void setPixel(int index, int red, int green, int blue) {
+        setPackedColor(index, (bound(red) << 16) | (bound(green) << 8) | bound(blue));
+    }
+
+
+    /**
+     * Set the pixel at index with the given color values.
+     *
+     * @param index Index of the pixel to set
+     * @param color Color value (android.graphics.Color)
+     *
+     * @see android.graphics.Color
+     */
+    public void setPixel(int index, int color) {
+        // Alpha is ignored; the remaining bytes are already in 0xRRGGBB order.
+        setPackedColor(index, color & 0xFFFFFF);
+    }
+
+
+    /**
+     * Get the color of the pixel at index.
+     *
+     * @param index Index of the pixel to get
+     * @return      Color value (android.graphics.Color) with full alpha.
+     *
+     * @see android.graphics.Color
+     */
+    public int getPixel(int index) {
+        return 0xFF000000 | frame[index];
+    }
+
+
     /**
      * Get the number of pixels configured for use in the LED strip.
      *
      * @return Number of pixels configured for use in the LED strip.
      */
     public int getLength() {
-        return length;
+        return frame.length;
     }
 
 
@@ -134,7 +196,7 @@ public class DotStarLED {
      * @see #setMaxOutputAmps(double)
      */
     public double getMaxOutputAmps() {
-        return maxOutputAmps;
+        return budget.getMaxOutputAmps();
     }
 
 
@@ -149,35 +211,83 @@ public class DotStarLED {
             throw new IllegalArgumentException("LED strips must have at least one pixel");
         }
 
-        this.length = length;
+        if (length == frame.length) {
+            return;
+        }
+
+        // Copy as many colors as possible. Any new pixels start as "off".
+        this.frame = Arrays.copyOf(this.frame, length);
+        this.budget.reset(this.frame);
+        this.dirty = true;
+        createPixelViews();
+    }
+
+
+    /**
+     * Choose how bits are written to the digital outputs.
+     *
+     * Both modes switch the outputs exactly the same way. Run-length mode spends less time
+     * deciding what to do between bits, which helps most with long stretches of identical bits
+     * such as dark pixels and the header frame.
+     *
+     * @param enabled True to batch identical bits into runs, false to write byte by byte.
+     * @see DotStarBitBangTransport#setRunLengthMode(boolean)
+     */
+    public void setRunLengthMode(boolean enabled) {
+        // Other transports don't switch digital outputs, so there is nothing to change.
+        if (transport instanceof DotStarBitBangTransport) {
+            ((DotStarBitBangTransport) transport).setRunLengthMode(enabled);
+        }
+    }
 
-        // Create a new pixel array of the appropriate size.
-        Pixel[] old_pixels = this.pixels;
-        Pixel[] new_pixels = new Pixel[length];
 
-        // Create a new colors array of the appropriate size.
-        int[] old_colors = this.colors;
-        int[] new_colors = new int[length * 3];
+    /**
+     * Get the transport the encoded bytes are written to.
+     *
+     * @return Transport given to the constructor, or the digital outputs.
+     */
+    public DotStarTransport getTransport() {
+        return transport;
+    }
 
-        // We will copy old array contents into the new arrays, as much as possible.
-        int i;
 
-        for (i = 0; i < Math.min(new_pixels.length, old_pixels.length); i++) {
-            new_pixels[i] = old_pixels[i];
+    /**
+     * Get what the LED strip has cost so far: encode and write times, bytes and chunks sent, and
+     * frames sent, skipped, and current-limited.
+     *
+     * @return Metrics kept by the LED strip (call reset() to start over).
+     * @see DotStarTelemetry
+     */
+    public DotStarMetrics getMetrics() {
+        return metrics;
+    }
 
-            new_colors[i * 3] = old_colors[i * 3];
-            new_colors[i * 3 + 1] = old_colors[i * 3 + 1];
-            new_colors[i * 3 + 2] = old_colors[i * 3 + 2];
-        }
 
-        // Initialize any remaining pixels as "off". The colors array elements are zero by default.
-        for (; i < new_pixels.length; i++) {
-            new_pixels[i] = new Pixel(0, 0, 0);
+    /**
+     * Get the gamma, brightness, and dithering tables used to encode colors.
+     *
+     * @return Output stage in use; {@link DotStarOutputStage#NONE} unless set.
+     */
+    public DotStarOutputStage getOutputStage() {
+        return outputStage;
+    }
+
+
+    /**
+     * Set the gamma, brightness, and dithering tables used to encode colors.
+     *
+     * Dithering only works if frames keep coming, so while dithering every update writes.
+     *
+     * @param stage Output stage to use.
+     * @see DotStarOutputStage
+     */
+    public void setOutputStage(DotStarOutputStage stage) {
+        if (stage == null) {
+            throw new IllegalArgumentException("An output stage must be given");
         }
 
-        // Replace the old arrays.
-        this.pixels = new_pixels;
-        this.colors = new_colors;
+        this.outputStage = stage;
+        this.dirty = true;
     }
 
 
@@ -196,7 +306,7 @@ public class DotStarLED {
      */
     public void setMaxOutputAmps(double maxOutputAmps) {
         // Sanity check amperage on the low side.
-        if (maxOutputAmps < Pixel.ampsDrawn) {
+        if (maxOutputAmps < DotStarPowerBudget.AMPS_PER_COLOR) {
             throw new IllegalArgumentException("Insufficient amperage for one LED pixel");
         }
 
@@ -205,97 +315,40 @@ public class DotStarLED {
             throw new IllegalArgumentException("Theoretical output amperage is too high");
         }
 
-        this.maxOutputAmps = maxOutputAmps;
+        budget.setMaxOutputAmps(maxOutputAmps);
     }
 
 
     /**
      * Flush the current array of pixels to the LED strip.
      *
-     * Prior to writing colors to the pixel array, this method will calculate an estimation of the
-     * total current (in amps) required to run the LEDs at the specified intensities. If this value
-     * exceeds the theoretical maximum of the output device, then total intensities will be reduced
-     * uniformly until the estimated current draw is below the the maximum.
+     * As pixels are set, this class keeps an estimate of the total current (in amps) required to
+     * run the LEDs at the specified intensities. If this value exceeds the theoretical maximum of
+     * the output device, then total intensities will be reduced uniformly until the estimated
+     * current draw is below the the maximum.
      *
      * @see #setMaxOutputAmps(double)
      */
-    public void update() {
-        // Number of bytes necessary to write out the pixels, including header and end frames.
-        int bufferLength =
-                4                               // Header frame: 1 word of zeroes
-                        + 4 * pixels.length             // Each pixel: 1 word
-                        + (pixels.length + 15) / 16;    // End frame: 1 byte for every 16 pixels.
-
-        // This will be written out to the I2C device once filled.
-        byte[] buffer = new byte[bufferLength];
-
-        // Temporarily holds just the colors from the pixels.
-        int[] colors = new int[pixels.length * 3];
-
-        // Used to track the total expected current drawn.
-        double current = 0.0;
-
-        // Used to track whether a write is necessary.
-        boolean pixelsHaveChanged = false;
-
-        // Iterate the pixels to learn the total current drawn and collect the colors in order.
-        for (int i = 0; i < pixels.length; i++) {
-            Pixel pixel = pixels[i];
-            current += pixel.current();
-
-            // When written out to the strip, we'll need the colors in BGR order.
-            colors[i * 3] = pixel.blue;
-            colors[i * 3 + 1] = pixel.green;
-            colors[i * 3 + 2] = pixel.red;
-
-            pixelsHaveChanged = pixelsHaveChanged || pixel.getDirty();
-            pixel.setClean();
-        }
-
-        // Do not write if there's nothing to change.
-        if (!pixelsHaveChanged) {
+    public synchronized void update() {
+        // Do not write if there's nothing to change, unless dithering needs another frame.
+        if (!dirty && !outputStage.isDithering()) {
+            metrics.recordSkipped();
             return;
         }
 
-        // Ensure the total current will not exceed our theoretical maximum.
-        if (current > maxOutputAmps) {
-            double scale = current / maxOutputAmps;
-
-            // Scale (reduce) each color value (0 - 255) and round down.
-            for (int i = 0; i < colors.length; i++) {
-                colors[i] = (int) Math.floor(colors[i] * scale);
-            }
-        }
-
-        // Skip the first four bytes (header frame).
-        for (int i = 0, j = 0; i < bufferLength; i++) {
-
-            if (i < 4) {
-                buffer[i] = 0;
-                continue;
-            }
-
-            // NOTE: Writing zeroes instead of 0xff reduces odd end pixels if not
-            // using the entire strip. This isn't to spec, however.
-            // If we have written all of our colors, fill in the end frame with 0x00.
-            if (j >= colors.length) {
-                buffer[i] = (byte) 0x00;
-                continue;
-            }
-
-            // We still have colors to write, so write {0xff, blue, green, red}.
-            if (i % 4 == 0) {
-                buffer[i] = (byte) 0xff;
-                continue;
-            }
+        dirty = false;
 
-            // As we write colors, progress along the colors array.
-            buffer[i] = (byte) colors[j];
-            j++;
-        }
+        // Ensure the total current will not exceed our theoretical maximum.
+        int scale = budget.getScale();
+        long start = System.nanoTime();
+        int length = encoder.encode(frame, 0, frame.length - 1, scale, outputStage);
+        metrics.recordEncode(System.nanoTime() - start, scale < DotStarPowerBudget.FULL_SCALE);
 
         // Write to the LED strip.
-        write(buffer);
+        start = System.nanoTime();
+        transport.write(encoder.getBuffer(), length);
+        int chunks = DotStarCounters.chunkCount(transport, length);
+        metrics.recordWrite(System.nanoTime() - start, length, chunks);
     }
 
 
@@ -304,40 +357,35 @@ public class DotStarLED {
     //----------------------------------------------------------------------------------------------
 
     /**
-     * Writes out the given buffer to the LEDs.
+     * Stores a packed 0xRRGGBB color, noting that a write is necessary only if the color changed.
      *
-     * This method will attempt to write the given data efficiently by only changing the clock line
-     * if the current data bit is the same as the previous data bit.
+     * @param index Index of the pixel to set.
+     * @param color Packed color value, without alpha.
+     */
+    private void setPackedColor(int index, int color) {
+        if (frame[index] != color) {
+            budget.replace(frame[index], color);
+            frame[index] = color;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Returns the given value, clipped to the range 0 - 255.
      *
-     * @param buffer Raw data to write out, including frame boundaries and termination bytes.
+     * @param value Color value to clip.
+     * @return      Color value clipped to the nearest value in the range 0 - 255.
      */
-    private synchronized void write(byte[] buffer) {
-        // Track the previous data line state (to avoid repeatedly setting the same value).
-        boolean new_state, old_state = false;
-
-        // Clear the slate to start.
-        data.setState(false);
-        clock.setState(false);
-
-        // Work our way through the buffer.
-        for (byte bits : buffer) {
-            // Write the byte with most-significant bit first.
-            for (int j = 7; j >= 0; j--) {
-                new_state = (bits & (0x01 << j)) > 0;
-
-                // Don't waste time setting the data line if it should stay the same.
-                if (new_state == old_state) {
-                    clock.setState(true);
-                    clock.setState(false);
-                }
-                else {
-                    old_state = new_state;
-                    data.setState(new_state);
-
-                    clock.setState(true);
-                    clock.setState(false);
-                }
-            }
+    private static int bound(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    /** Recreates the compatibility {@link #pixels} array to match the current length. */
+    private void createPixelViews() {
+        pixels = new DotStarLED.Pixel[frame.length];
+
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = new DotStarLED.Pixel(this, i);
         }
     }
 
@@ -347,6 +395,12 @@ public class DotStarLED {
 
     /**
      * Pixels represent a single pixel group in the strip of LEDs, with red, green, and blue values.
+     *
+     * The pixels in {@link DotStarLED#pixels} hold no color themselves; they read and
+     * write the colors stored by their strip. A pixel made with one of the public constructors is
+     * detached: it keeps its own color and dirty flag, as in earlier versions of this class, but
+     * is not part of any strip. Putting one in the pixels array does not change the LEDs; copy its
+     * color in with setPixel instead.
      */
     public static class Pixel {
 
@@ -354,35 +408,47 @@ public class DotStarLED {
         // State
         //------------------------------------------------------------------------------------------
 
-        /** Value of the red channel, from 0 to 255. */
-        private int red;
+        /** Strip holding the colors of this pixel, or null if detached. */
+        private final DotStarLED strip;
 
-        /** Value of the blue channel, from 0 to 255. */
-        private int blue;
+        /** Position of this pixel in the strip. */
+        private final int index;
 
-        /** Value of the green channel, from 0 to 255. */
-        private int green;
+        /** Color of a detached pixel, packed as 0xRRGGBB. */
+        private int color;
 
-        /** Whether the pixel has been written to the LED strip. True if a write is necessary. */
+        /** Whether a detached pixel has changed since it was last marked clean. */
         private boolean dirty;
 
         /** Estimate of maximum amps drawn per color. */
-        public static final double ampsDrawn = 0.02;
+        public static final double ampsDrawn = DotStarPowerBudget.AMPS_PER_COLOR;
 
 
         //------------------------------------------------------------------------------------------
         // Construction
         //------------------------------------------------------------------------------------------
 
+        /** Creates a detached pixel, initially "off". */
         public Pixel() {
+            this(null, -1);
             reset();
         }
 
+        /**
+         * Creates a detached pixel with the given color values.
+         *
+         * @param red   Red color value.
+         * @param green Green color value.
+         * @param blue  Blue color value.
+         */
         public Pixel(int red, int green, int blue) {
-            this.red = bound(red);
-            this.blue = bound(blue);
-            this.green = bound(green);
-            this.dirty = true;
+            this(null, -1);
+            setRGB(red, green, blue);
+        }
+
+        private Pixel(DotStarLED strip, int index) {
+            this.strip = strip;
+            this.index = index;
         }
 
 
@@ -396,7 +462,7 @@ public class DotStarLED {
          * @return Estimated current drawn (in amps).
          */
         public double current() {
-            return (red + blue + green) / 255.0 * ampsDrawn;
+            return (getRed() + getBlue() + getGreen()) / 255.0 * ampsDrawn;
         }
 
 
@@ -404,10 +470,7 @@ public class DotStarLED {
          * Resets the pixel to "off" with values (0, 0, 0).
          */
         public void reset() {
-            this.red = 0;
-            this.blue = 0;
-            this.green = 0;
-            this.dirty = true;
+            setRGB(0, 0, 0);
         }
 
 
@@ -419,10 +482,13 @@ public class DotStarLED {
          * @param blue  Blue color value.
          */
         public void setRGB(int red, int green, int blue) {
-            this.red = bound(red);
-            this.blue = bound(blue);
-            this.green = bound(green);
-            this.dirty = true;
+            if (strip != null) {
+                strip.setPixel(index, red, green, blue);
+            }
+            else {
+                this.color = (bound(red) << 16) | (bound(green) << 8) | bound(blue);
+                this.dirty = true;
+            }
         }
 
         /**
@@ -433,26 +499,46 @@ public class DotStarLED {
          * @see android.graphics.Color
          */
         public void setColor(int color) {
-            this.red = bound(Color.red(color));
-            this.blue = bound(Color.blue(color));
-            this.green = bound(Color.green(color));
-            this.dirty = true;
+            setRGB(Color.red(color), Color.green(color), Color.blue(color));
+        }
+
+        /** @return Value of the red channel, from 0 to 255. */
+        public int getRed() {
+            return Color.red(packedColor());
+        }
+
+        /** @return Value of the green channel, from 0 to 255. */
+        public int getGreen() {
+            return Color.green(packedColor());
+        }
+
+        /** @return Value of the blue channel, from 0 to 255. */
+        public int getBlue() {
+            return Color.blue(packedColor());
         }
 
         /**
          * Notes that the pixel has been written, and need not be written again until changed.
+         *
+         * Only detached pixels keep their own dirty flag. For pixels of a strip, this does nothing:
+         * the strip notes what has been written as it updates.
          */
         public void setClean() {
-            this.dirty = false;
+            if (strip == null) {
+                this.dirty = false;
+            }
         }
 
         /**
          * Checks whether the pixel has been changed since its last write.
          *
+         * For pixels of a strip, this is true if any pixel of the strip changed since the last
+         * update, since the strip does not track pixels one by one.
+         *
          * @return True if changed, false if no write is necessary.
          */
         public boolean getDirty() {
-            return this.dirty;
+            return strip == null ? this.dirty : strip.dirty;
         }
 
 
@@ -460,14 +546,9 @@ public class DotStarLED {
         // Utility
         //------------------------------------------------------------------------------------------
 
-        /**
-         * Returns the given value, clipped to the range 0 - 255.
-         *
-         * @param value Color value to clip.
-         * @return      Color value clipped to the nearest value in the range 0 - 255.
-         */
-        private int bound(int value) {
-            return Math.max(0, Math.min(255, value));
+        /** @return Color of this pixel, from its strip if attached. */
+        private int packedColor() {
+            return strip != null ? strip.getPixel(index) : this.color;
         }
     }
 }
@@ -0,0 +1,47 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * What an LED strip has cost so far: time spent encoding and writing, and how much was sent.
+ *
+ * Both {@link DotStarLED} and {@link DotStarBridgedLED} keep these numbers as they update, and
+ * return them from getMetrics(). They are cheap to keep (recording never allocates memory), so they
+ * are always on. To watch them while driving, see {@link DotStarTelemetry}.
+ *
+ * Numbers may be read from any thread while the LEDs are updating.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.0.0
+ */
+public interface DotStarMetrics {
+
+    /** @return Time taken to encode each frame sent, from colors to bytes. */
+    DotStarHistogram getEncodeTime();
+
+    /** @return Time taken to write each frame to the transport, from the first byte to the last. */
+    DotStarHistogram getWriteTime();
+
+    /** @return Number of bytes written to the transport. */
+    long getBytesSent();
+
+    /**
+     * Get the number of separate writes the bytes were sent in.
+     *
+     * An I2C/SPI bridge ({@link DotStarBridgeTransport}) sends each frame in several chunks, each a
+     * separate I2C write. Other transports send each frame as a single chunk.
+     *
+     * @return Number of chunks sent.
+     */
+    long getChunksSent();
+
+    /** @return Number of frames sent to the LEDs. */
+    long getFramesSent();
+
+    /** @return Number of updates that sent nothing, because no pixel had changed. */
+    long getFramesSkipped();
+
+    /** @return Number of frames sent dimmed, because they would have drawn too much current. */
+    long getFramesLimited();
+
+    /** Start every count and histogram over from zero. */
+    void reset();
+}
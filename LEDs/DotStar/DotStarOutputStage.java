@@ -0,0 +1,331 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * Turns packed colors into the bytes of DotStar pixel words, with optional gamma correction,
+ * global brightness, and temporal dithering.
+ *
+ * LEDs do not look twice as bright when given twice the value: the eye is far more sensitive to
+ * changes among dim colors. Patterns that run at low brightness (the rainbow uses a value of 0.25)
+ * only have a few dozen levels to work with, so slow fades visibly step from one level to the
+ * next. This class helps in three ways, all worked out ahead of time as tables:
+ *
+ * <ul>
+ *     <li>Gamma correction maps each color value through a curve (2.2 is typical), so that equal
+ *     steps in value look like equal steps in brightness.</li>
+ *     <li>Each pixel word starts with a 5-bit global brightness. Rather than always sending 31 and
+ *     dimming the colors (losing resolution), the stage picks the lowest brightness that can still
+ *     show each pixel, and sends its colors at full 8-bit resolution. A brightness below 31 dims
+ *     the whole strip the same way.</li>
+ *     <li>Dithering rounds each color up or down on alternating frames, so that over a few frames
+ *     the LEDs average out to levels between the 8-bit values. This only works while frames keep
+ *     being written.</li>
+ * </ul>
+ *
+ * Colors are looked up as 8.8 fixed-point levels, so encoding uses no floating-point math. With the
+ * default settings (gamma 1.0, brightness 31, no dithering) the stage passes colors through
+ * unchanged, with a brightness of 31, exactly as before.
+ *
+ * When the power budget calls for dimming, the stage can also do that with the 5-bit brightness
+ * rather than by making every color value smaller (see {@link Limiting}).
+ *
+ * The LEDs apply the 5-bit brightness with a slower flicker than the colors, which some cameras
+ * can pick up. The power budget still counts the colors as set, so it errs on the safe side.
+ *
+ * An output stage never changes once created, so one stage can be shared between threads.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.0.0
+ */
+public class DotStarOutputStage {
+
+    //----------------------------------------------------------------------------------------------
+    // Constants
+    //----------------------------------------------------------------------------------------------
+
+    /** Largest value of the 5-bit global brightness field. */
+    public static final int MAX_BRIGHTNESS = 31;
+
+    /** Stage that passes colors through unchanged. */
+    public static final DotStarOutputStage NONE = new DotStarOutputStage(1.0, MAX_BRIGHTNESS, false);
+
+    /** Fractional bits of the gain applied after choosing a pixel's brightness. */
+    private static final int GAIN_BITS = 10;
+
+    /**
+     * Amount added to each 8.8 level before rounding down, taking turns frame by frame. They
+     * average to one half, so over 8 frames each color shows its level to within 1/16.
+     */
+    private static final int[] DITHER = {16, 144, 80, 208, 48, 176, 112, 240};
+
+    /** Amount added before rounding down when not dithering, to round to the nearest value. */
+    private static final int ROUND = 128;
+
+    /**
+     * Lowest brightness able to show a pixel, indexed by the whole part of its brightest 8.8 level.
+     * Choosing from the whole part alone can pick one step too high, but never too low.
+     */
+    private static final int[] PIXEL_BRIGHTNESS = new int[256];
+
+    /** Gain that makes up for each brightness, with {@link #GAIN_BITS} fractional bits. */
+    private static final int[] GAIN = new int[MAX_BRIGHTNESS + 1];
+
+    static {
+        for (int i = 0; i < PIXEL_BRIGHTNESS.length; i++) {
+            // Levels up to (i + 1) * 256 must fit in 255 * 256 after the gain of 31 / brightness.
+            PIXEL_BRIGHTNESS[i] = Math.max(1, Math.min(MAX_BRIGHTNESS, ((i + 1) * MAX_BRIGHTNESS + 254) / 255));
+        }
+
+        for (int b = 1; b <= MAX_BRIGHTNESS; b++) {
+            GAIN[b] = (MAX_BRIGHTNESS << GAIN_BITS) / b;
+        }
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // State
+    //----------------------------------------------------------------------------------------------
+
+    /** Settings this stage was made with. */
+    private final double gamma;
+    private final int brightness;
+    private final boolean dither;
+    private final Limiting limiting;
+
+    /** Whether colors are sent unchanged, with a brightness of 31, when not current limiting. */
+    private final boolean passThrough;
+
+    /** Output level of each color value (0 - 255), in 8.8 fixed point (0 - 65280). */
+    private final int[] levels = new int[256];
+
+
+    //----------------------------------------------------------------------------------------------
+    // Construction
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Builds the tables for the given settings, current limiting by dimming the colors.
+     *
+     * @param gamma      Exponent of the gamma curve; 1.0 for none, 2.2 is typical.
+     * @param brightness Brightness of the whole strip, from 1 to 31.
+     * @param dither     True to dither colors over successive frames.
+     */
+    public DotStarOutputStage(double gamma, int brightness, boolean dither) {
+        this(gamma, brightness, dither, Limiting.Colors);
+    }
+
+    /**
+     * Builds the tables for the given settings. This takes a little while, so do it once.
+     *
+     * @param gamma      Exponent of the gamma curve; 1.0 for none, 2.2 is typical.
+     * @param brightness Brightness of the whole strip, from 1 to 31.
+     * @param dither     True to dither colors over successive frames.
+     * @param limiting   How to dim the LEDs when they would draw too much current.
+     */
+    public DotStarOutputStage(double gamma, int brightness, boolean dither, Limiting limiting) {
+        if (!(gamma > 0)) {
+            throw new IllegalArgumentException("Gamma must be greater than 0");
+        }
+        if (brightness < 1 || brightness > MAX_BRIGHTNESS) {
+            throw new IllegalArgumentException("Brightness must be from 1 to 31");
+        }
+        if (limiting == null) {
+            throw new IllegalArgumentException("A way of current limiting must be given");
+        }
+
+        this.gamma = gamma;
+        this.brightness = brightness;
+        this.dither = dither;
+        this.limiting = limiting;
+        this.passThrough = gamma == 1.0 && brightness == MAX_BRIGHTNESS && !dither;
+
+        for (int i = 0; i < levels.length; i++) {
+            double level = Math.pow(i / 255.0, gamma) * brightness / MAX_BRIGHTNESS;
+            levels[i] = (int) Math.round(level * (255 << 8));
+        }
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Public API
+    //----------------------------------------------------------------------------------------------
+
+    /** @return Exponent of the gamma curve; 1.0 if there is none. */
+    public double getGamma() {
+        return gamma;
+    }
+
+    /** @return Brightness of the whole strip, from 1 to 31. */
+    public int getBrightness() {
+        return brightness;
+    }
+
+    /** @return True if colors are dithered over successive frames. */
+    public boolean isDithering() {
+        return dither;
+    }
+
+    /** @return How the LEDs are dimmed when they would draw too much current. */
+    public Limiting getLimiting() {
+        return limiting;
+    }
+
+    /**
+     * @return True if colors are sent unchanged, with a brightness of 31, unless current limiting
+     *         requires otherwise.
+     */
+    public boolean isPassThrough() {
+        return passThrough;
+    }
+
+    /**
+     * Fills in the given range of pixel words {0b111 + brightness, blue, green, red}.
+     *
+     * @param pixels Packed colors (0xRRGGBB) of every pixel in the strip.
+     * @param low    Index of the first pixel to encode.
+     * @param high   Index of the last pixel to encode.
+     * @param scale  Current-limiting scale from the power budget.
+     * @param frame  Number of the frame being encoded, which chooses the dithering.
+     * @param out    Encoded frame; pixel i is written at 4 + 4 * i.
+     */
+    public void encode(int[] pixels, int low, int high, int scale, int frame, byte[] out) {
+        if (passThrough) {
+            if (scale >= DotStarPowerBudget.FULL_SCALE || limiting == Limiting.Colors) {
+                encodeUnchanged(pixels, low, high, scale, out);
+                return;
+            }
+
+            if (limiting == Limiting.StripBrightness) {
+                encodeStripBrightness(pixels, low, high, scale, out);
+                return;
+            }
+        }
+
+        // Anything else goes through the levels, which choose a brightness for each pixel. While
+        // limiting, round down (unless dithering, which averages out) so as not to go over.
+        boolean limited = scale < DotStarPowerBudget.FULL_SCALE;
+        int round = limited ? 0 : ROUND;
+
+        for (int i = low, j = 4 + 4 * low; i <= high; i++, j += 4) {
+            int color = pixels[i];
+            int red = levels[(color >> 16) & 0xFF];
+            int green = levels[(color >> 8) & 0xFF];
+            int blue = levels[color & 0xFF];
+
+            if (limited) {
+                // Levels are 16 bits and so is the scale, so each product fits in 32 bits when
+                // treated as unsigned.
+                red = (red * scale) >>> DotStarPowerBudget.SCALE_BITS;
+                green = (green * scale) >>> DotStarPowerBudget.SCALE_BITS;
+                blue = (blue * scale) >>> DotStarPowerBudget.SCALE_BITS;
+            }
+
+            // Dim pixels get a low brightness and large color values, keeping their resolution.
+            int pixelBrightness = PIXEL_BRIGHTNESS[Math.max(red, Math.max(green, blue)) >>> 8];
+            int gain = GAIN[pixelBrightness];
+            int offset = dither ? DITHER[(frame + i) & 7] : round;
+
+            out[j] = (byte) (0xE0 | pixelBrightness);
+            out[j + 1] = (byte) (((blue * gain >>> GAIN_BITS) + offset) >>> 8);
+            out[j + 2] = (byte) (((green * gain >>> GAIN_BITS) + offset) >>> 8);
+            out[j + 3] = (byte) (((red * gain >>> GAIN_BITS) + offset) >>> 8);
+        }
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Utility
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Fills in pixel words {0b111 + brightness, blue, green, red}, dimming the whole strip with
+     * the 5-bit brightness and sending the colors as they are.
+     *
+     * @param pixels Packed colors (0xRRGGBB) of every pixel in the strip.
+     * @param low    Index of the first pixel to encode.
+     * @param high   Index of the last pixel to encode.
+     * @param scale  Current-limiting scale from the power budget, less than full.
+     * @param out    Encoded frame; pixel i is written at 4 + 4 * i.
+     */
+    private static void encodeStripBrightness(int[] pixels, int low, int high, int scale, byte[] out) {
+        // Round down, so the strip never draws more than the budget allows.
+        int stripBrightness = (MAX_BRIGHTNESS * scale) >>> DotStarPowerBudget.SCALE_BITS;
+        int colorScale = DotStarPowerBudget.FULL_SCALE;
+
+        // Below 1/31 of full brightness, the colors must be dimmed the rest of the way.
+        if (stripBrightness < 1) {
+            stripBrightness = 1;
+            colorScale = MAX_BRIGHTNESS * scale;
+        }
+
+        byte header = (byte) (0xE0 | stripBrightness);
+
+        for (int i = low, j = 4 + 4 * low; i <= high; i++, j += 4) {
+            int color = pixels[i];
+            out[j] = header;
+            out[j + 1] = (byte) DotStarPowerBudget.scale(color & 0xFF, colorScale);
+            out[j + 2] = (byte) DotStarPowerBudget.scale((color >> 8) & 0xFF, colorScale);
+            out[j + 3] = (byte) DotStarPowerBudget.scale((color >> 16) & 0xFF, colorScale);
+        }
+    }
+
+    /**
+     * Fills in pixel words {0xff, blue, green, red} with the colors as they are, apart from
+     * current limiting.
+     *
+     * @param pixels Packed colors (0xRRGGBB) of every pixel in the strip.
+     * @param low    Index of the first pixel to encode.
+     * @param high   Index of the last pixel to encode.
+     * @param scale  Current-limiting scale from the power budget.
+     * @param out    Encoded frame; pixel i is written at 4 + 4 * i.
+     */
+    private static void encodeUnchanged(int[] pixels, int low, int high, int scale, byte[] out) {
+        if (scale < DotStarPowerBudget.FULL_SCALE) {
+            // Ensure the total current will not exceed our theoretical maximum by scaling (reducing)
+            // each color value (0 - 255) and rounding down.
+            for (int i = low, j = 4 + 4 * low; i <= high; i++, j += 4) {
+                int color = pixels[i];
+                out[j] = (byte) 0xff;
+                out[j + 1] = (byte) DotStarPowerBudget.scale(color & 0xFF, scale);
+                out[j + 2] = (byte) DotStarPowerBudget.scale((color >> 8) & 0xFF, scale);
+                out[j + 3] = (byte) DotStarPowerBudget.scale((color >> 16) & 0xFF, scale);
+            }
+        }
+        else {
+            for (int i = low, j = 4 + 4 * low; i <= high; i++, j += 4) {
+                int color = pixels[i];
+                out[j] = (byte) 0xff;
+                out[j + 1] = (byte) color;
+                out[j + 2] = (byte) (color >> 8);
+                out[j + 3] = (byte) (color >> 16);
+            }
+        }
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Limiting
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Ways of dimming the LEDs when they would draw more than the maximum current.
+     *
+     * With gamma, brightness, or dithering in use, dim pixels already get their own 5-bit
+     * brightness, so the colors keep their resolution whichever way is chosen.
+     */
+    public enum Limiting {
+        /** Make every color value smaller, rounding down. Dim colors lose resolution. */
+        Colors,
+
+        /**
+         * Lower the 5-bit brightness of the whole strip, sending the colors as they are. The
+         * brightness only has 31 steps, so the strip may end up slightly dimmer than necessary.
+         */
+        StripBrightness,
+
+        /**
+         * Choose the 5-bit brightness of each pixel separately, and make up for it in the colors.
+         * This keeps closest to the allowed current, at nearly full color resolution.
+         */
+        PixelBrightness
+    }
+}
@@ -0,0 +1,168 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * Keeps track of the current drawn by a DotStar LED strip, and how much to dim it to stay safe.
+ *
+ * Each color of each pixel draws roughly {@link #AMPS_PER_COLOR} at full intensity, and less in
+ * proportion to its value. Rather than adding up every pixel before each write, the LED classes
+ * report each color change to the budget as it happens, so the total is always up to date.
+ *
+ * When the total exceeds the allowed maximum, {@link #getScale()} gives a fixed-point factor that
+ * dims every color by the same proportion. Applying it with {@link #scale(int, int)} uses only
+ * integer math.
+ *
+ * This class is used by both {@link DotStarLED} and {@link DotStarBridgedLED}; copy it to your code
+ * along with whichever of those you use.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.0.0
+ */
+public class DotStarPowerBudget {
+
+    //----------------------------------------------------------------------------------------------
+    // Constants
+    //----------------------------------------------------------------------------------------------
+
+    /** Estimate of maximum amps drawn per color. */
+    public static final double AMPS_PER_COLOR = 0.02;
+
+    /** Number of fractional bits in the scale returned by {@link #getScale()}. */
+    public static final int SCALE_BITS = 16;
+
+    /** Scale that leaves colors unchanged (1.0 in fixed point). */
+    public static final int FULL_SCALE = 1 << SCALE_BITS;
+
+
+    //----------------------------------------------------------------------------------------------
+    // State
+    //----------------------------------------------------------------------------------------------
+
+    /** Sum of every color value (0 - 255) of every pixel. Proportional to the current drawn. */
+    private long colorTotal;
+
+    /** Largest colorTotal allowed by the maximum output current. */
+    private long maxColorTotal;
+
+    /** Maximum output current (in amps) as determined by the hardware. */
+    private double maxOutputAmps;
+
+
+    //----------------------------------------------------------------------------------------------
+    // Construction
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @param maxOutputAmps Maximum current (in amps) allowed to flow to the LEDs.
+     */
+    public DotStarPowerBudget(double maxOutputAmps) {
+        setMaxOutputAmps(maxOutputAmps);
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Public API
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Get the maximum current (in amps) allowed to flow to the LEDs.
+     *
+     * @return Maximum amps to draw.
+     */
+    public double getMaxOutputAmps() {
+        return maxOutputAmps;
+    }
+
+    /**
+     * Set the maximum current (in amps) allowed to flow to the LEDs.
+     *
+     * The LED classes check that this value is sensible before passing it along.
+     *
+     * @param maxOutputAmps Maximum amps to draw.
+     */
+    public void setMaxOutputAmps(double maxOutputAmps) {
+        this.maxOutputAmps = maxOutputAmps;
+        this.maxColorTotal = (long) Math.floor(maxOutputAmps / AMPS_PER_COLOR * 255);
+    }
+
+    /**
+     * Note that a pixel changed from one color to another.
+     *
+     * @param oldColor Previous packed color (0xRRGGBB) of the pixel.
+     * @param newColor New packed color (0xRRGGBB) of the pixel.
+     */
+    public void replace(int oldColor, int newColor) {
+        colorTotal += colorSum(newColor) - colorSum(oldColor);
+    }
+
+    /**
+     * Recalculate the total from scratch, for when many pixels change at once.
+     *
+     * @param pixels Packed colors (0xRRGGBB) of every pixel in the strip.
+     */
+    public void reset(int[] pixels) {
+        colorTotal = 0;
+
+        for (int color : pixels) {
+            colorTotal += colorSum(color);
+        }
+    }
+
+    /**
+     * Gives an estimate of the amount of current (in amps) needed to display the pixels as set,
+     * before any dimming.
+     *
+     * @return Estimated current drawn (in amps).
+     */
+    public double getCurrent() {
+        return colorTotal / 255.0 * AMPS_PER_COLOR;
+    }
+
+    /**
+     * Checks whether the pixels as set would draw more than the maximum current.
+     *
+     * @return True if the colors must be dimmed.
+     */
+    public boolean isLimited() {
+        return colorTotal > maxColorTotal;
+    }
+
+    /**
+     * Get the factor by which to dim every color, so the total current stays within the maximum.
+     *
+     * @return Fixed-point scale with {@link #SCALE_BITS} fractional bits; {@link #FULL_SCALE} if
+     *         no dimming is necessary.
+     */
+    public int getScale() {
+        if (colorTotal <= maxColorTotal) {
+            return FULL_SCALE;
+        }
+
+        return (int) ((maxColorTotal << SCALE_BITS) / colorTotal);
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Utility
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Dims a single color value by the given scale, rounding down.
+     *
+     * @param value Color value (0 - 255).
+     * @param scale Fixed-point scale from {@link #getScale()}.
+     * @return      Scaled color value (0 - 255).
+     */
+    public static int scale(int value, int scale) {
+        return (value * scale) >>> SCALE_BITS;
+    }
+
+    /**
+     * Returns the sum of the red, green, and blue values of a packed color.
+     *
+     * @param color Packed color (0xRRGGBB).
+     * @return      Sum of the three color values (0 - 765).
+     */
+    private static int colorSum(int color) {
+        return ((color >> 16) & 0xFF) + ((color >> 8) & 0xFF) + (color & 0xFF);
+    }
+}
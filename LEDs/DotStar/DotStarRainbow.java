@@ -1,11 +1,13 @@
 package org.firstinspires.ftc.teamcode;
 
-import android.graphics.Color;
-
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 import com.qualcomm.robotcore.util.ElapsedTime;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Create a moving rainbow effect using DotStar LEDs.
  *
@@ -34,8 +36,16 @@ public class DotStarRainbow extends OpMode {
     /* This example will use a timer to create waves of color. */
     ElapsedTime timer;
 
+    /* Converting hues to colors is slow, so we do it once for every degree around the color wheel.
+     * Choose the saturation (1.0) and brightness (0.25) here.
+     */
+    private static final DotStarHueTable HUES = new DotStarHueTable(360, 1.0f, 0.25f);
+
     /* Run the LED update code in a separate thread to avoid blocking important tasks. */
-    Thread led_thread;
+    ScheduledExecutorService led_thread;
+
+    /* How many times per second to update the LEDs. */
+    private static final int FRAMES_PER_SECOND = 30;
 
     @Override
     public void init() {
@@ -59,35 +69,32 @@ public class DotStarRainbow extends OpMode {
 
         /* We use a separate thread for updating the LEDs. This allows us to continually change the
          * colors without worrying about delaying more important tasks, like driving.
+         *
+         * Rather than updating as fast as possible (which keeps a processor core busy the whole
+         * time), we ask for the update to run at a fixed rate. The thread sleeps in between.
          */
+        led_thread = Executors.newSingleThreadScheduledExecutor();
 
-
-        led_thread = new Thread() {
+        led_thread.scheduleAtFixedRate(new Runnable() {
             public void run() {
 
-                // Continue until the program stops.
-                while (true) {
-                    if (Thread.interrupted()) return;
-
-                    // Update each pixel in the strip.
-                    for (int i = 0; i < leds.pixels.length; i++) {
+                // The whole rainbow moves 72 degrees per second.
+                int offset = (int) (timer.seconds() * 72);
 
-                        // Calculate the new color based on its position and the current time.
-                        double hue = (i * 18 + timer.seconds() * 72) % 360;
-                        int color = Color.HSVToColor(new float[]{(float) hue, 1.0f, 0.25f});
+                // Update each pixel in the strip.
+                for (int i = 0; i < leds.getLength(); i++) {
 
-                        // Update individual pixels with their new color.
-                        leds.setPixel(i, color);
-                    }
+                    // Look up the new color based on its position and the current time.
+                    int color = HUES.getColorAtStep(i * 18 + offset);
 
-                    // Flush the current set of colors to the strip.
-                    leds.update();
+                    // Update individual pixels with their new color.
+                    leds.setPixel(i, color);
                 }
-            }
-        };
 
-        // Start the color updates.
-        led_thread.start();
+                // Flush the current set of colors to the strip.
+                leds.update();
+            }
+        }, 0, 1000 / FRAMES_PER_SECOND, TimeUnit.MILLISECONDS);
     }
 
     @Override
@@ -97,6 +104,6 @@ public class DotStarRainbow extends OpMode {
     public void stop() {
 
         // End the color updates.
-        led_thread.interrupt();
+        led_thread.shutdownNow();
     }
 }
@@ -0,0 +1,63 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.Arrays;
+
+/**
+ * A transport that keeps the bytes it is given in memory, instead of sending them anywhere.
+ *
+ * Use it to see exactly what the LED classes would send, or to measure the cost of encoding
+ * without any I/O:
+ *
+ * <pre>
+ *     DotStarRecorderTransport recorder = new DotStarRecorderTransport();
+ *     DotStarLED leds = new DotStarLED(30, recorder);
+ *     leds.setPixel(0, Color.RED);
+ *     leds.update();
+ *     recorder.getLastWrite();   // Header frame, then {0xff, 0x00, 0x00, 0xff}, ...
+ * </pre>
+ *
+ * For a stand-in that decodes the bytes into colors, see {@link DotStarSimulator}.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.0.0
+ */
+public class DotStarRecorderTransport implements DotStarTransport {
+
+    /** Copy of the most recent write. Reused when the next write is the same length. */
+    private byte[] lastWrite = new byte[0];
+
+    /** Number of writes and bytes received since creation or the last reset. */
+    private long writes, bytes;
+
+    public synchronized void write(byte[] buffer, int length) {
+        if (lastWrite.length != length) {
+            lastWrite = new byte[length];
+        }
+
+        System.arraycopy(buffer, 0, lastWrite, 0, length);
+        writes++;
+        bytes += length;
+    }
+
+    /** @return Copy of the bytes most recently written, or an empty array if there were none. */
+    public synchronized byte[] getLastWrite() {
+        return Arrays.copyOf(lastWrite, lastWrite.length);
+    }
+
+    /** @return Number of writes received since creation or the last reset. */
+    public synchronized long getWrites() {
+        return writes;
+    }
+
+    /** @return Number of bytes received since creation or the last reset. */
+    public synchronized long getBytesWritten() {
+        return bytes;
+    }
+
+    /** Forget every write received so far. */
+    public synchronized void reset() {
+        lastWrite = new byte[0];
+        writes = 0;
+        bytes = 0;
+    }
+}
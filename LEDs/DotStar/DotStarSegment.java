@@ -0,0 +1,97 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * A part of an LED strip that can be drawn on as if it were a whole strip.
+ *
+ * Segments let several patterns share one strip. Give each pattern its own segment, let every
+ * pattern draw, then write the strip once:
+ *
+ * <pre>
+ *     DotStarSegment front = new DotStarSegment(leds, 0, 30, false);
+ *     DotStarSegment back = new DotStarSegment(leds, 30, 30, true);
+ *     chase.setTarget(front);
+ *     twinkle.setTarget(back);
+ *     ...
+ *     chase.update();
+ *     twinkle.update();
+ *     leds.update();
+ * </pre>
+ *
+ * A segment holds no colors itself; it passes everything through to the strip (or any other
+ * {@link DotStarFrameBuffer}) it is part of. Segments may be made of other segments.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.0.0
+ */
+public class DotStarSegment implements DotStarFrameBuffer {
+
+    /** Pixels this segment is part of. */
+    private final DotStarFrameBuffer parent;
+
+    /** Index within the parent of the first pixel of the segment. */
+    private final int offset;
+
+    /** Number of pixels in the segment. */
+    private final int length;
+
+    /** Whether the segment counts from its last pixel (in the parent) to its first. */
+    private final boolean reversed;
+
+    /**
+     * @param parent   Strip (or other pixels) this segment is part of.
+     * @param offset   Index within the parent of the first pixel of the segment.
+     * @param length   Number of pixels in the segment.
+     * @param reversed True if pixel 0 of the segment is the last of its pixels in the parent.
+     */
+    public DotStarSegment(DotStarFrameBuffer parent, int offset, int length, boolean reversed) {
+        if (offset < 0 || length < 1 || offset + length > parent.getLength()) {
+            throw new IllegalArgumentException("Segment must be within the LED strip");
+        }
+
+        this.parent = parent;
+        this.offset = offset;
+        this.length = length;
+        this.reversed = reversed;
+    }
+
+    /** @return Strip (or other pixels) this segment is part of. */
+    public DotStarFrameBuffer getParent() {
+        return parent;
+    }
+
+    /** @return Index within the parent of the first pixel of the segment. */
+    public int getOffset() {
+        return offset;
+    }
+
+    /** @return True if the segment counts backwards through its parent. */
+    public boolean isReversed() {
+        return reversed;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getPixel(int index) {
+        return parent.getPixel(toParent(index));
+    }
+
+    public void setPixel(int index, int color) {
+        parent.setPixel(toParent(index), color);
+    }
+
+    /**
+     * Finds the index within the parent of a pixel of the segment.
+     *
+     * @param index Index of the pixel within the segment.
+     * @return      Index of the pixel within the parent.
+     */
+    private int toParent(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Pixel " + index + " is outside the segment");
+        }
+
+        return reversed ? offset + length - 1 - index : offset + index;
+    }
+}
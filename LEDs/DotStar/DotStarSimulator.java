@@ -0,0 +1,525 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DigitalChannel;
+import com.qualcomm.robotcore.hardware.DigitalChannelController;
+import com.qualcomm.robotcore.hardware.I2cAddr;
+import com.qualcomm.robotcore.hardware.I2cDeviceSynchSimple;
+import com.qualcomm.robotcore.hardware.I2cWaitControl;
+import com.qualcomm.robotcore.hardware.TimestampedData;
+
+import java.util.Arrays;
+
+/**
+ * Pretends to be a DotStar LED strip, so LED code can run without a robot.
+ *
+ * The simulator provides stand-ins for the hardware the LED classes talk to: an I2C device that
+ * behaves like the I2C/SPI bridge ({@link #getBridge()}), and a pair of digital channels for the
+ * clock and data lines ({@link #getClock()} and {@link #getData()}). Hand these to
+ * {@link DotStarBridgedLED} or {@link DotStarLED} in place of the real thing:
+ *
+ * <pre>
+ *     DotStarSimulator strip = new DotStarSimulator(60);
+ *     DotStarBridgedLED leds = new DotStarBridgedLED(
+ *             new DotStarBridgedLED.Parameters(), strip.getBridge(), true);
+ *
+ *     leds.setLength(60);
+ *     leds.setPixel(0, Color.RED);
+ *     leds.update();
+ *
+ *     strip.getPixel(0); // Color.RED
+ * </pre>
+ *
+ * Every byte that reaches the simulated strip is decoded the way the LEDs would: a run of zero
+ * bytes starts a new frame, and each following word that starts with three set bits sets the
+ * brightness and color of the next pixel. Along the way, the simulator counts the bytes, writes,
+ * and digital IO calls it receives, and notes when the first and last writes happened.
+ *
+ * The bridge behaves like an SC18IS602: only writes to function IDs 0x01 through 0x0F reach the
+ * strip, each as one SPI transaction, and bytes past the end of its
+ * {@value DotStarBridgeTransport#BRIDGE_BUFFER}-byte data buffer are lost. The simulator counts
+ * the bytes lost, and the transactions that ended partway through a pixel word.
+ *
+ * @author AJ Foster
+ * @version 1.1.0
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class DotStarSimulator {
+
+    //----------------------------------------------------------------------------------------------
+    // State
+    //----------------------------------------------------------------------------------------------
+
+    /** Decoded colors of each pixel, as 0xRRGGBB. */
+    private final int[] colors;
+
+    /** Decoded 5-bit global brightness of each pixel. */
+    private final int[] brightness;
+
+    /** Bytes of the word currently being received. */
+    private final byte[] word = new byte[4];
+
+    /** Number of bytes of the current word received so far. */
+    private int wordBytes;
+
+    /** Number of zero bytes received in a row. */
+    private int zeroBytes;
+
+    /** Index of the next pixel to receive a color, or -1 if waiting for a start frame. */
+    private int nextPixel = -1;
+
+    /** Byte currently being assembled from the data line, and how many bits it has. */
+    private int bits, bitCount;
+
+    /** Statistics about what the simulated strip has received. */
+    private long bytesReceived, writes, framesReceived, pixelsReceived, digitalCalls;
+
+    /** Statistics about writes to the bridge: bytes past its buffer, and words split in two. */
+    private long bytesOverflowed, splitWords;
+
+    /** Times (System.nanoTime) of the first and latest writes, or 0 if there have been none. */
+    private long firstWriteNanos, lastWriteNanos;
+
+    /** Stand-in for the I2C/SPI bridge. */
+    private final Bridge bridge = new Bridge();
+
+    /** Stand-ins for the clock and data lines. */
+    private final Channel clock = new Channel(true), data = new Channel(false);
+
+
+    //----------------------------------------------------------------------------------------------
+    // Construction
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * @param length Number of pixels in the simulated strip.
+     */
+    public DotStarSimulator(int length) {
+        this.colors = new int[length];
+        this.brightness = new int[length];
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Public API
+    //----------------------------------------------------------------------------------------------
+
+    /** @return Stand-in for the I2C/SPI bridge, for use with {@link DotStarBridgedLED}. */
+    public I2cDeviceSynchSimple getBridge() {
+        return bridge;
+    }
+
+    /** @return Stand-in for the clock line, for use with {@link DotStarLED}. */
+    public DigitalChannel getClock() {
+        return clock;
+    }
+
+    /** @return Stand-in for the data line, for use with {@link DotStarLED}. */
+    public DigitalChannel getData() {
+        return data;
+    }
+
+    /** @return Number of pixels in the simulated strip. */
+    public int getLength() {
+        return colors.length;
+    }
+
+    /**
+     * Get the color the pixel at index is showing, ignoring its global brightness.
+     *
+     * @param index Index of the pixel
+     * @return      Color value (android.graphics.Color) with full alpha.
+     */
+    public synchronized int getPixel(int index) {
+        return 0xFF000000 | colors[index];
+    }
+
+    /**
+     * Get the 5-bit global brightness of the pixel at index.
+     *
+     * @param index Index of the pixel
+     * @return      Brightness, from 0 to 31.
+     */
+    public synchronized int getBrightness(int index) {
+        return brightness[index];
+    }
+
+    /** @return Number of bytes that reached the strip. */
+    public synchronized long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /** @return Number of I2C writes (to the bridge) or bytes (over digital IO) received. */
+    public synchronized long getWrites() {
+        return writes;
+    }
+
+    /** @return Number of start frames received. */
+    public synchronized long getFramesReceived() {
+        return framesReceived;
+    }
+
+    /** @return Number of pixel words received, including repeats of unchanged colors. */
+    public synchronized long getPixelsReceived() {
+        return pixelsReceived;
+    }
+
+    /** @return Number of bytes written to the bridge that did not fit in its data buffer. */
+    public synchronized long getBytesOverflowed() {
+        return bytesOverflowed;
+    }
+
+    /** @return Number of bridge writes (SPI transactions) that ended partway through a pixel word. */
+    public synchronized long getSplitWords() {
+        return splitWords;
+    }
+
+    /** @return Number of calls made to the clock and data line stand-ins. */
+    public synchronized long getDigitalCalls() {
+        return digitalCalls;
+    }
+
+    /** @return Time (System.nanoTime) of the first write, or 0 if there have been none. */
+    public synchronized long getFirstWriteNanos() {
+        return firstWriteNanos;
+    }
+
+    /** @return Time (System.nanoTime) of the latest write, or 0 if there have been none. */
+    public synchronized long getLastWriteNanos() {
+        return lastWriteNanos;
+    }
+
+    /**
+     * Reset all statistics to zero. The pixels keep their colors.
+     */
+    public synchronized void resetCounters() {
+        bytesReceived = 0;
+        writes = 0;
+        framesReceived = 0;
+        pixelsReceived = 0;
+        digitalCalls = 0;
+        bytesOverflowed = 0;
+        splitWords = 0;
+        firstWriteNanos = 0;
+        lastWriteNanos = 0;
+    }
+
+    /**
+     * Receive raw bytes as if they were clocked into the strip.
+     *
+     * @param buffer Bytes to receive.
+     * @param offset Index of the first byte to receive.
+     * @param length Number of bytes to receive.
+     */
+    public synchronized void receive(byte[] buffer, int offset, int length) {
+        noteWrite();
+
+        for (int i = offset; i < offset + length; i++) {
+            receive(buffer[i]);
+        }
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Utility
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Receives one SPI transaction from the bridge.
+     *
+     * @param buffer Data bytes of the I2C write, after the function ID.
+     */
+    private synchronized void receiveTransaction(byte[] buffer) {
+        int length = Math.min(buffer.length, DotStarBridgeTransport.BRIDGE_BUFFER);
+
+        bytesOverflowed += buffer.length - length;
+        receive(buffer, 0, length);
+
+        // A frame is underway, and the transaction stopped partway through one of its words.
+        if (nextPixel >= 0 && wordBytes != 0) {
+            splitWords++;
+        }
+    }
+
+    /** Updates the write count and timestamps. */
+    private void noteWrite() {
+        long now = System.nanoTime();
+
+        if (writes == 0) {
+            firstWriteNanos = now;
+        }
+
+        lastWriteNanos = now;
+        writes++;
+    }
+
+    /**
+     * Decodes a single byte.
+     *
+     * @param value Byte received.
+     */
+    private void receive(byte value) {
+        bytesReceived++;
+
+        // A start frame is 4 zero bytes. Pixel words always start with a non-zero byte and have at
+        // most 3 zeroes in a row, so a longer run of zeroes means the next word starts a frame.
+        if (value == 0) {
+            zeroBytes++;
+
+            if (zeroBytes >= 4 && nextPixel != 0) {
+                nextPixel = 0;
+                wordBytes = 0;
+                framesReceived++;
+                return;
+            }
+        }
+        else {
+            if (zeroBytes >= 4) {
+                wordBytes = 0;
+            }
+
+            zeroBytes = 0;
+        }
+
+        if (nextPixel < 0 || (wordBytes == 0 && value == 0)) {
+            return;
+        }
+
+        word[wordBytes++] = value;
+
+        if (wordBytes < 4) {
+            return;
+        }
+
+        wordBytes = 0;
+
+        // Each pixel word is {0b111 + brightness, blue, green, red}.
+        if ((word[0] & 0xE0) == 0xE0) {
+            if (nextPixel < colors.length) {
+                brightness[nextPixel] = word[0] & 0x1F;
+                colors[nextPixel] = ((word[3] & 0xFF) << 16) | ((word[2] & 0xFF) << 8) | (word[1] & 0xFF);
+            }
+
+            nextPixel++;
+            pixelsReceived++;
+        }
+    }
+
+    /**
+     * Samples the data line on a rising clock edge, receiving a byte every 8 bits.
+     */
+    private synchronized void clockRisingEdge() {
+        bits = (bits << 1) | (data.state ? 1 : 0);
+        bitCount++;
+
+        if (bitCount == 8) {
+            noteWrite();
+            receive((byte) bits);
+            bits = 0;
+            bitCount = 0;
+        }
+    }
+
+    /** Counts a call to one of the digital line stand-ins. */
+    private synchronized void noteDigitalCall() {
+        digitalCalls++;
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Bridge
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Stand-in for the I2C/SPI bridge. Writes to registers (function IDs) 0x01 through 0x0F are
+     * passed through to the strip, up to the size of the bridge's data buffer; anything else is
+     * accepted and ignored.
+     */
+    private class Bridge implements I2cDeviceSynchSimple {
+
+        private I2cAddr address = I2cAddr.create8bit(0x50);
+        private boolean logging = false;
+        private String loggingTag = "DotStarSimulator";
+        private String userConfiguredName = null;
+        private HealthStatus healthStatus = HealthStatus.HEALTHY;
+
+        public void write(int ireg, byte[] data) {
+            write(ireg, data, I2cWaitControl.ATOMIC);
+        }
+
+        public void write(int ireg, byte[] data, I2cWaitControl waitControl) {
+            if (ireg >= 0x01 && ireg <= 0x0F) {
+                receiveTransaction(data);
+            }
+        }
+
+        public void write8(int ireg, int bVal) {
+            write8(ireg, bVal, I2cWaitControl.ATOMIC);
+        }
+
+        public void write8(int ireg, int bVal, I2cWaitControl waitControl) {
+            write(ireg, new byte[]{(byte) bVal}, waitControl);
+        }
+
+        public void waitForWriteCompletions(I2cWaitControl waitControl) {}
+
+        public byte read8(int ireg) {
+            return 0;
+        }
+
+        public byte[] read(int ireg, int creg) {
+            return new byte[creg];
+        }
+
+        public TimestampedData readTimeStamped(int ireg, int creg) {
+            TimestampedData result = new TimestampedData();
+            result.data = read(ireg, creg);
+            result.nanoTime = System.nanoTime();
+            return result;
+        }
+
+        public void enableWriteCoalescing(boolean enable) {}
+
+        public boolean isWriteCoalescingEnabled() {
+            return false;
+        }
+
+        public boolean isArmed() {
+            return true;
+        }
+
+        public void setI2cAddr(I2cAddr i2cAddr) {
+            address = i2cAddr;
+        }
+
+        public I2cAddr getI2cAddr() {
+            return address;
+        }
+
+        public void setI2cAddress(I2cAddr newAddress) {
+            address = newAddress;
+        }
+
+        public I2cAddr getI2cAddress() {
+            return address;
+        }
+
+        public void setLogging(boolean enabled) {
+            logging = enabled;
+        }
+
+        public boolean getLogging() {
+            return logging;
+        }
+
+        public void setLoggingTag(String loggingTag) {
+            this.loggingTag = loggingTag;
+        }
+
+        public String getLoggingTag() {
+            return loggingTag;
+        }
+
+        public void setUserConfiguredName(String name) {
+            userConfiguredName = name;
+        }
+
+        public String getUserConfiguredName() {
+            return userConfiguredName;
+        }
+
+        public void setHealthStatus(HealthStatus status) {
+            healthStatus = status;
+        }
+
+        public HealthStatus getHealthStatus() {
+            return healthStatus;
+        }
+
+        public Manufacturer getManufacturer() {
+            return Manufacturer.Other;
+        }
+
+        public String getDeviceName() {
+            return "Simulated I2C/SPI Bridge";
+        }
+
+        public String getConnectionInfo() {
+            return "simulated";
+        }
+
+        public int getVersion() {
+            return 1;
+        }
+
+        public void resetDeviceConfigurationForOpMode() {}
+
+        public void close() {}
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Digital Channels
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Stand-in for a digital output. The clock channel samples the data channel on each rising edge.
+     */
+    private class Channel implements DigitalChannel {
+
+        private final boolean isClock;
+        private Mode mode = Mode.INPUT;
+        private boolean state = false;
+
+        Channel(boolean isClock) {
+            this.isClock = isClock;
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public void setMode(Mode mode) {
+            this.mode = mode;
+        }
+
+        public void setMode(DigitalChannelController.Mode mode) {
+            this.mode = mode == DigitalChannelController.Mode.OUTPUT ? Mode.OUTPUT : Mode.INPUT;
+        }
+
+        public boolean getState() {
+            noteDigitalCall();
+            return state;
+        }
+
+        public void setState(boolean state) {
+            noteDigitalCall();
+
+            boolean rising = isClock && state && !this.state;
+            this.state = state;
+
+            if (rising) {
+                clockRisingEdge();
+            }
+        }
+
+        public Manufacturer getManufacturer() {
+            return Manufacturer.Other;
+        }
+
+        public String getDeviceName() {
+            return isClock ? "Simulated Clock Line" : "Simulated Data Line";
+        }
+
+        public String getConnectionInfo() {
+            return "simulated";
+        }
+
+        public int getVersion() {
+            return 1;
+        }
+
+        public void resetDeviceConfigurationForOpMode() {}
+
+        public void close() {}
+    }
+}
@@ -0,0 +1,154 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+/**
+ * Shows a summary of an LED strip's {@link DotStarMetrics} in telemetry.
+ *
+ * Call {@link #update()} in every loop, before telemetry.update():
+ *
+ * <pre>
+ *     DotStarTelemetry ledTelemetry = new DotStarTelemetry(telemetry, leds.getMetrics());
+ *
+ *     public void loop() {
+ *         ...
+ *         leds.update();
+ *         ledTelemetry.update();
+ *         telemetry.update();
+ *     }
+ * </pre>
+ *
+ * Working out percentiles and formatting the summary takes time of its own, so the summary is only
+ * refreshed at the publish rate (twice per second by default). In between, the last summary is
+ * added again, since telemetry normally clears its data every time it is sent. Each refresh also
+ * shows how many bytes per second were sent since the one before.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.0.0
+ */
+public class DotStarTelemetry {
+
+    //----------------------------------------------------------------------------------------------
+    // State
+    //----------------------------------------------------------------------------------------------
+
+    /** Telemetry to add the summary to. */
+    private final Telemetry telemetry;
+
+    /** Metrics to summarize. */
+    private final DotStarMetrics metrics;
+
+    /** Caption that starts each line of the summary. */
+    private final String caption;
+
+    /** Number of times per second to refresh the summary. */
+    private volatile double publishRate;
+
+    /** Earliest time (System.nanoTime) at which the summary may be refreshed again. */
+    private long nextPublishNanos;
+
+    /** Time of the last refresh, and the bytes sent as of then, for working out the byte rate. */
+    private long lastPublishNanos, lastBytesSent;
+
+    /** Lines of the summary, as of the last refresh. Null until the first. */
+    private String frames, traffic, encode, write;
+
+
+    //----------------------------------------------------------------------------------------------
+    // Construction
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Summarizes the metrics under the caption "LEDs", twice per second.
+     *
+     * @param telemetry Telemetry to add the summary to.
+     * @param metrics   Metrics to summarize, such as those of DotStarBridgedLED.getMetrics().
+     */
+    public DotStarTelemetry(Telemetry telemetry, DotStarMetrics metrics) {
+        this(telemetry, metrics, "LEDs", 2.0);
+    }
+
+    /**
+     * @param telemetry   Telemetry to add the summary to.
+     * @param metrics     Metrics to summarize, such as those of DotStarBridgedLED.getMetrics().
+     * @param caption     Caption that starts each line of the summary, to tell strips apart.
+     * @param publishRate Number of times per second to refresh the summary.
+     */
+    public DotStarTelemetry(Telemetry telemetry, DotStarMetrics metrics, String caption, double publishRate) {
+        this.telemetry = telemetry;
+        this.metrics = metrics;
+        this.caption = caption;
+        setPublishRate(publishRate);
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Public API
+    //----------------------------------------------------------------------------------------------
+
+    /** @return Number of times per second the summary is refreshed. */
+    public double getPublishRate() {
+        return publishRate;
+    }
+
+    /**
+     * Set how often the summary is refreshed.
+     *
+     * @param publishRate Number of times per second to refresh the summary.
+     */
+    public void setPublishRate(double publishRate) {
+        if (!(publishRate > 0)) {
+            throw new IllegalArgumentException("Publish rate must be greater than zero");
+        }
+
+        this.publishRate = publishRate;
+    }
+
+    /**
+     * Adds the summary to telemetry, refreshing it first if it is time to.
+     */
+    public void update() {
+        long now = System.nanoTime();
+
+        if (frames == null || now - nextPublishNanos >= 0) {
+            refresh(now);
+            nextPublishNanos = now + (long) (1e9 / publishRate);
+        }
+
+        telemetry.addData(caption + " frames", frames);
+        telemetry.addData(caption + " traffic", traffic);
+        telemetry.addData(caption + " encode", encode);
+        telemetry.addData(caption + " write", write);
+    }
+
+
+    //----------------------------------------------------------------------------------------------
+    // Utility
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Reads the metrics and formats a new summary.
+     *
+     * @param now Current time (System.nanoTime).
+     */
+    private void refresh(long now) {
+        long bytesSent = metrics.getBytesSent();
+
+        // No rate until there are two readings to compare, or if the metrics were reset between.
+        double bytesPerSecond = 0;
+
+        if (frames != null && now > lastPublishNanos && bytesSent >= lastBytesSent) {
+            bytesPerSecond = (bytesSent - lastBytesSent) * 1e9 / (now - lastPublishNanos);
+        }
+
+        lastPublishNanos = now;
+        lastBytesSent = bytesSent;
+
+        frames = String.format("%d sent, %d skipped, %d limited",
+                metrics.getFramesSent(), metrics.getFramesSkipped(), metrics.getFramesLimited());
+        traffic = String.format("%d bytes in %d chunks (%.0f B/s)",
+                bytesSent, metrics.getChunksSent(), bytesPerSecond);
+        encode = metrics.getEncodeTime().toString();
+        write = metrics.getWriteTime().toString();
+    }
+}
@@ -0,0 +1,28 @@
+package org.firstinspires.ftc.teamcode;
+
+/**
+ * A way of getting encoded bytes to a DotStar LED strip.
+ *
+ * The LED classes turn colors into bytes with a {@link DotStarEncoder}, then hand the bytes to a
+ * transport. The transport decides how they travel: over an I2C/SPI bridge
+ * ({@link DotStarBridgeTransport}), by switching two digital outputs
+ * ({@link DotStarBitBangTransport}), or nowhere at all ({@link DotStarRecorderTransport}). Since
+ * every transport receives exactly the same bytes, they can be swapped and compared on equal terms.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.0.0
+ */
+public interface DotStarTransport {
+
+    /**
+     * Send the first length bytes of the buffer to the LEDs, in order.
+     *
+     * The buffer may be reused for the next frame as soon as this returns, so a transport that
+     * needs the bytes later must copy them. The LED classes never call this from two threads at
+     * once.
+     *
+     * @param buffer Encoded frame, starting with the header frame.
+     * @param length Number of bytes from the start of buffer to send.
+     */
+    void write(byte[] buffer, int length);
+}
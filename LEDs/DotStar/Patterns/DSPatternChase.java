@@ -17,57 +17,47 @@ package org.firstinspires.ftc.teamcode;
  */
 import android.graphics.Color;
 
-import com.qualcomm.robotcore.util.ElapsedTime;
-
 public class DSPatternChase extends DotStarPattern implements IDotStarPattern {
     /* This pattern will run a chase pixel through a solid color.  Changing
-     * chaseSpeed will change the time in milliseconds to shift the pixels
-     * and chaseSeperation will change how far the chase goes until the next
-     * chase begins. */
-    private ElapsedTime timer;
-    private double lastUpdateTime;
-    private int chasePosition;
+     * the pattern delay will change the time in milliseconds to shift the
+     * pixels and the pattern spacing will change how far the chase goes until
+     * the next chase begins. */
 
     public DSPatternChase(DotStarBridgedLED leds) {
     	super(leds);
-        // Set up the timer we'll use for visual effects.
-        timer = new ElapsedTime();
-        lastUpdateTime = timer.milliseconds();
         numColors = 2;
         pixelSpacing = 10;
         patternDelay = 0.0;
-        colors.add(0, Color.RED);
-        colors.add(1, Color.BLUE);
-        chasePosition = 0;
+        setColors(Color.RED, Color.BLUE);
         isStatic = false;
     }
 
-    public void update( ) {
-        if(colors.size() >= numColors) {
-            // Wait for time to pass
-            double currentTime = timer.milliseconds();
-            if(currentTime - lastUpdateTime >= patternDelay) {
-                chasePosition++;
-                lastUpdateTime = currentTime;
-                if (chasePosition == pixelSpacing) {
-                    chasePosition = 0;
-                }
-                int midColor = interpolateColors(colors.get(0), colors.get(1), 0.5);
-                int currentPosition = chasePosition;
+    /* The chase is back where it started once it has moved the pattern spacing. */
+    public long getPeriodSteps() {
+        return Math.max(1, pixelSpacing);
+    }
+
+    public void render(DotStarFrameBuffer frameBuffer, long timeNanos) {
+        // Read the colors once; they may be replaced at any time.
+        int[] colors = getColorArray();
+        int spacing = Math.max(1, pixelSpacing);
+
+        if(colors.length >= numColors) {
+            // The chase moves one pixel per step.
+            int chasePosition = (int) ((getStep(timeNanos) + 1) % spacing);
+            int midColor = interpolateColors(colors[0], colors[1], 0.5);
+            int currentPosition = chasePosition;
 
-                // Update each pixel in the strip.
-                for (int i = 0; i < leds.pixels.length; i++) {
-                    if(i == currentPosition) {
-                        leds.setPixel(i, colors.get(1));
-                        currentPosition += pixelSpacing;
-                    } else if(i == currentPosition - 1) {
-                        leds.setPixel(i, midColor);
-                    } else {
-                        leds.setPixel(i, colors.get(0));
-                    }
+            // Update each pixel in the strip.
+            for (int i = 0; i < frameBuffer.getLength(); i++) {
+                if(i == currentPosition) {
+                    frameBuffer.setPixel(i, colors[1]);
+                    currentPosition += spacing;
+                } else if(i == currentPosition - 1) {
+                    frameBuffer.setPixel(i, midColor);
+                } else {
+                    frameBuffer.setPixel(i, colors[0]);
                 }
-                // Flush the current set of colors to the strip.
-                leds.update();
             }
         }
 	}
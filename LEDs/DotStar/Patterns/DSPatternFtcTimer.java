@@ -17,57 +17,56 @@ package org.firstinspires.ftc.teamcode;
  */
 import android.graphics.Color;
 
-import com.qualcomm.robotcore.util.ElapsedTime;
-
 public class DSPatternFtcTimer extends DotStarPattern implements IDotStarPattern {
-    ElapsedTime timer;
-    private double targetTime = 0.0;
-    private boolean flashOn = false;
+    /* Time in milliseconds the red flash stays on (and off) near the end. */
+    private static final double FLASH_MILLIS = 250.0;
+
+    /* Shading from 120 to 10 seconds left, and the colors it was made with. */
+    private Gradient gradient;
+    private int[] gradientColors;
 
     public DSPatternFtcTimer(DotStarBridgedLED leds) {
     	super(leds);
-        // Set up the timer we'll use for visual effects.
-        timer = new ElapsedTime();
+        // The countdown starts at the epoch; use setEpoch to start it later.
         numColors = 3;
-        targetTime = 0.0;
         patternDelay = 120000.0;
-        colors.add(0, Color.GREEN);
-        colors.add(1, Color.YELLOW);
-        colors.add(2, Color.RED);
-        colors.add(3, Color.BLACK);
+        setColors(Color.GREEN, Color.YELLOW, Color.RED, Color.BLACK);
         isStatic = false;
     }
 
-    public void update( ) {
-        if (colors.size() >= numColors) {
-            if(targetTime == 0.0) {
-                targetTime = timer.milliseconds() + patternDelay;
-            }
+    public void render(DotStarFrameBuffer frameBuffer, long timeNanos) {
+        // Read the colors once; they may be replaced at any time.
+        int[] colors = getColorArray();
+
+        if (colors.length >= numColors) {
+            double elapsed = getElapsedMillis(timeNanos);
+            double timeRemaining = patternDelay - elapsed;
 
             int color;
-            double timeRemaining = targetTime - timer.milliseconds();
             // This is relatively hard coded for now.
             // For the last 10 seconds flash red
             if(timeRemaining < 10000.0) {
-                if (flashOn) {
-                    flashOn = false;
-                    color = colors.get(2);
-                } else {
-                    flashOn = true;
-                    color = colors.get(3);
-                }
-            } else if(timeRemaining < 20000.0) {
-                color = interpolateColors(colors.get(2), colors.get(1), (timeRemaining - 10000.0)/(10000.0));
+                boolean flashOn = ((long) (elapsed / FLASH_MILLIS)) % 2 == 0;
+                color = flashOn || colors.length < 4 ? colors[2] : colors[3];
             } else {
-                color = interpolateColors(colors.get(1), colors.get(0), (timeRemaining - 20000.0)/(100000.0));
+                // Red at 10 seconds, yellow at 20 seconds, and green at 120 seconds.
+                color = getGradient(colors).getColor((timeRemaining - 10000.0) / 110000.0);
             }
-            for (int i = 0; i < leds.pixels.length; i++) {
+            for (int i = 0; i < frameBuffer.getLength(); i++) {
                 // Update individual pixels with their new color.
-                leds.setPixel(i, color);
+                frameBuffer.setPixel(i, color);
             }
+        }
+    }
 
-            // Flush the current set of colors to the strip.
-            leds.update();
+    /* Gets the shading for the given colors, making it again if they changed. */
+    private synchronized Gradient getGradient(int[] colors) {
+        if (gradient == null || gradientColors != colors) {
+            gradient = new Gradient(256,
+                    new double[]{0.0, 10000.0 / 110000.0, 1.0},
+                    new int[]{colors[2], colors[1], colors[0]});
+            gradientColors = colors;
         }
+        return gradient;
     }
 }
\ No newline at end of file
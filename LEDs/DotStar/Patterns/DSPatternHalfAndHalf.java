@@ -2,7 +2,8 @@ package org.firstinspires.ftc.teamcode;
 
 /**
  * Divides the LEDs into two separately colored segments.  We used it to
- * indicate two seperate states.
+ * indicate two seperate states.  To run a different pattern on each half,
+ * give each pattern its own DotStarSegment instead.
  *
  * DotStar LEDs (i.e. https://www.adafruit.com/product/2238) are collections of LEDs which are
  * programmable using SPI. While it is possible to use two digital outputs as data and clock lines,
@@ -21,25 +22,24 @@ public class DSPatternHalfAndHalf extends DotStarPattern {
     	super(leds);
     	isStatic = true;
     	numColors = 2;
-    	colors.add(0, 0xC0C0C0);
-    	colors.add(1, 0xFFD700);
+    	setColors(0xC0C0C0, 0xFFD700);
     }
 
-	public void update( ) {
-	    if(colors.size() >= numColors) {
-            int halfSize = leds.pixels.length / 2;
+	public void render(DotStarFrameBuffer frameBuffer, long timeNanos) {
+	    // Read the colors once; they may be replaced at any time.
+	    int[] colors = getColorArray();
+
+	    if(colors.length >= numColors) {
+            int halfSize = frameBuffer.getLength() / 2;
             // Update each pixel in the strip.
             for (int i = 0; i < halfSize; i++) {
                 // Update individual pixels with their new color.
-                leds.setPixel(i, colors.get(0));
+                frameBuffer.setPixel(i, colors[0]);
             }
-            for (int i = halfSize; i < leds.pixels.length; i++) {
+            for (int i = halfSize; i < frameBuffer.getLength(); i++) {
                 // Update individual pixels with their new color.
-                leds.setPixel(i, colors.get(1));
+                frameBuffer.setPixel(i, colors[1]);
             }
-
-            // Flush the current set of colors to the strip.
-            leds.update();
         }
 	}
 }
\ No newline at end of file
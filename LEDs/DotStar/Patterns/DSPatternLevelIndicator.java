@@ -2,6 +2,8 @@ package org.firstinspires.ftc.teamcode;
 
 import android.graphics.Color;
 
+import java.util.Arrays;
+
 /**
  * A three color level indicator.  The range is set by maxValue and minValue.
  * The first color is shown at the minValue, the third color is shown at the
@@ -24,56 +26,87 @@ public class DSPatternLevelIndicator extends DotStarPattern {
     public double maxThreshold = 0.67;
     public double minThreshold = 0.33;
 
+    /* Range and thresholds as of the last check for changes. */
+    private double versionMax = maxValue, versionMin = minValue;
+    private double versionMaxThreshold = maxThreshold, versionMinThreshold = minThreshold;
+
+    /* Shading from minValue to maxValue, and what it was made with. */
+    private Gradient gradient;
+    private int[] gradientColors;
+    private double[] gradientRange;
+
 	public DSPatternLevelIndicator(DotStarBridgedLED leds) {
     	super(leds);
     	isStatic = true;
     	numColors = 3;
-    	colors.add(0, Color.RED);
-    	colors.add(1, Color.YELLOW);
-        colors.add(2, Color.GREEN);
+    	setColors(Color.RED, Color.YELLOW, Color.GREEN);
     }
 
-	public void update( ) {
-	    if(colors.size() >= numColors) {
-	        int lowColor = colors.get(0);
-	        int midColor = colors.get(1);
-	        int highColor = colors.get(2);
-            int midLowColor = interpolateColors(lowColor, midColor, 0.5f);
-            int midHighColor = interpolateColors(midColor, highColor, 0.5f);
-	        int displayColor;
-
-	        if(measuredValue < minThreshold) {
-	            if(measuredValue < minValue) {
-                    measuredValue = minValue;
-                }
-                // Go from color 0 to mid low color
-                double percentage = (measuredValue - minValue) / (minThreshold - minValue);
-                displayColor = interpolateColors(lowColor, midLowColor, percentage);
-            } else if(measuredValue < maxThreshold) {
-	            double midPoint = (maxThreshold  + minThreshold) / 2;
-	            if(measuredValue < midPoint) {
-                    double percentage = (measuredValue - minThreshold)/(midPoint - minThreshold);
-                    displayColor = interpolateColors(midLowColor, midColor, percentage);
-                } else {
-                    double percentage = (measuredValue - midPoint)/(maxThreshold - midPoint);
-                    displayColor = interpolateColors(midColor, midHighColor, percentage);
-                }
-            } else {
-                if (measuredValue > maxValue) {
-                    measuredValue = maxValue;
-                }
-                double percentage = (measuredValue - maxThreshold)/(maxValue - maxThreshold);
-                displayColor = interpolateColors(midHighColor, highColor, percentage);
-            }
+	public void render(DotStarFrameBuffer frameBuffer, long timeNanos) {
+	    // Read the colors once; they may be replaced at any time.
+	    int[] colors = getColorArray();
+	    double value = measuredValue;
+
+	    if(colors.length >= numColors) {
+	        // Values outside the range are clipped by the gradient.
+	        double position = (value - minValue) / (maxValue - minValue);
+	        int displayColor = getGradient(colors).getColor(position);
 
             // Update each pixel in the strip.
-            for (int i = 0; i < leds.pixels.length; i++) {
+            for (int i = 0; i < frameBuffer.getLength(); i++) {
                 // Update individual pixels with their new color.
-                leds.setPixel(i, displayColor);
+                frameBuffer.setPixel(i, displayColor);
             }
-
-            // Flush the current set of colors to the strip.
-            leds.update();
         }
 	}
+
+	/* The range and thresholds are public fields, so changes to them are
+	 * found here rather than in setters. */
+	protected synchronized int getVersion() {
+	    if (maxValue != versionMax || minValue != versionMin
+	            || maxThreshold != versionMaxThreshold || minThreshold != versionMinThreshold) {
+	        versionMax = maxValue;
+	        versionMin = minValue;
+	        versionMaxThreshold = maxThreshold;
+	        versionMinThreshold = minThreshold;
+	        settingsChanged();
+	    }
+
+	    return super.getVersion();
+	}
+
+	/* Gets the shading for the given colors and range, making it again if
+	 * anything changed. */
+	private synchronized Gradient getGradient(int[] colors) {
+	    double[] range = {minValue, minThreshold, maxThreshold, maxValue};
+
+	    if (gradient == null || gradientColors != colors || !Arrays.equals(gradientRange, range)) {
+	        int lowColor = colors[0];
+	        int midColor = colors[1];
+	        int highColor = colors[2];
+	        double midPoint = (maxThreshold + minThreshold) / 2;
+	        double span = maxValue - minValue;
+
+	        // The first color fades to halfway to the second at the low
+	        // threshold, reaches the second color midway between the
+	        // thresholds, and fades to the third from there.
+	        gradient = new Gradient(256,
+	                new double[]{
+	                        0.0,
+	                        (minThreshold - minValue) / span,
+	                        (midPoint - minValue) / span,
+	                        (maxThreshold - minValue) / span,
+	                        1.0},
+	                new int[]{
+	                        lowColor,
+	                        interpolateFixed(lowColor, midColor, 128),
+	                        midColor,
+	                        interpolateFixed(midColor, highColor, 128),
+	                        highColor});
+	        gradientColors = colors;
+	        gradientRange = range;
+	    }
+
+	    return gradient;
+	}
 }
\ No newline at end of file
@@ -12,39 +12,35 @@ package org.firstinspires.ftc.teamcode;
  * @author AJ Foster and Rick Van Smith
  * @version 2.0.0
  */
-import android.graphics.Color;
-
-import com.qualcomm.robotcore.util.ElapsedTime;
-
 public class DSPatternRainbow extends DotStarPattern implements IDotStarPattern {
-    /* This example will use a timer to create waves of color. */
-    ElapsedTime timer;
-    private double lastUpdateTime;
+    /* Colors around the color wheel, one per degree, at the brightness we want. */
+    private static final DotStarHueTable HUES = new DotStarHueTable(360, 1.0f, 0.25f);
 
     public DSPatternRainbow(DotStarBridgedLED leds) {
     	super(leds);
-        // Set up the timer we'll use for visual effects.
+        // The rainbow moves once per step.
         patternDelay = 0.0;
-        timer = new ElapsedTime();
-        lastUpdateTime = timer.milliseconds();
     }
 
-    public void update( ) {
-        double currentTime = timer.milliseconds();
-        if(currentTime - lastUpdateTime > patternDelay) {
-            // Update each pixel in the strip.
-            for (int i = 0; i < leds.pixels.length; i++) {
+    /* The rainbow goes around the color wheel every 5 seconds, a whole
+     * number of steps as long as the step length divides evenly into it. */
+    public long getPeriodSteps() {
+        double steps = 5000.0 / getStepMillis();
+        return steps == Math.floor(steps) ? (long) steps : 0;
+    }
+
+    public void render(DotStarFrameBuffer frameBuffer, long timeNanos) {
+        // The whole rainbow moves 72 degrees per second.
+        int offset = (int) (getStep(timeNanos) * getStepMillis() * 72 / 1000);
 
-                // Calculate the new color based on its position and the current time.
-                double hue = (i * 18 + timer.seconds() * 72) % 360;
-                int color = Color.HSVToColor(new float[]{(float) hue, 1.0f, 0.25f});
+        // Update each pixel in the strip.
+        for (int i = 0; i < frameBuffer.getLength(); i++) {
 
-                // Update individual pixels with their new color.
-                leds.setPixel(i, color);
-            }
+            // Look up the new color based on its position and the current time.
+            int color = HUES.getColorAtStep(i * 18 + offset);
 
-            // Flush the current set of colors to the strip.
-            leds.update();
+            // Update individual pixels with their new color.
+            frameBuffer.setPixel(i, color);
         }
 	}
 }
\ No newline at end of file
@@ -13,43 +13,29 @@ package org.firstinspires.ftc.teamcode;
  * @author AJ Foster and Rick Van Smith
  * @version 2.0.0
  */
-import android.graphics.Color;
-
-import com.qualcomm.robotcore.util.ElapsedTime;
-
 public class DSPatternRainbowShift extends DotStarPattern implements IDotStarPattern {
-    /* This example will use a timer to create waves of color. */
-    ElapsedTime timer;
-    private double lastUpdateTime;
-    private int hueCount;
+    /* Colors around the color wheel, one per degree, at the brightness we want. */
+    private static final DotStarHueTable HUES = new DotStarHueTable(360, 1.0f, 0.25f);
 
     public DSPatternRainbowShift(DotStarBridgedLED leds) {
     	super(leds);
-        // Set up the timer we'll use for visual effects.
+        // The color changes once per step.
         patternDelay = 0.0;
-        timer = new ElapsedTime();
-        lastUpdateTime = timer.milliseconds();
-        hueCount = 0;
     }
 
-    public void update( ) {
-        double currentTime = timer.milliseconds();
-        if(currentTime - lastUpdateTime > patternDelay) {
-            double hue = (hueCount * 18 + timer.seconds() * 72) % 360;
-            hueCount++;
-            if(hueCount >= leds.pixels.length) {
-                hueCount = 0;
-            }
-            // Update each pixel in the strip.
-            for (int i = 0; i < leds.pixels.length; i++) {
-                int color = Color.HSVToColor(new float[]{(float) hue, 1.0f, 0.25f});
+    public void render(DotStarFrameBuffer frameBuffer, long timeNanos) {
+        if (frameBuffer.getLength() == 0) {
+            return;
+        }
 
-                // Update individual pixels with their new color.
-                leds.setPixel(i, color);
-            }
+        long step = getStep(timeNanos);
+        int hueCount = (int) (step % frameBuffer.getLength());
+        int color = HUES.getColorAtStep(hueCount * 18 + (int) (step * getStepMillis() * 72 / 1000));
 
-            // Flush the current set of colors to the strip.
-            leds.update();
+        // Update each pixel in the strip.
+        for (int i = 0; i < frameBuffer.getLength(); i++) {
+            // Update individual pixels with their new color.
+            frameBuffer.setPixel(i, color);
         }
 	}
 }
\ No newline at end of file
@@ -17,45 +17,57 @@ package org.firstinspires.ftc.teamcode;
  */
 import android.graphics.Color;
 
-import com.qualcomm.robotcore.util.ElapsedTime;
-
 public class DSPatternTwinkle extends DotStarPattern implements IDotStarPattern {
-    ElapsedTime timer;
-    private double lastUpdateTime;
+    /* Starting point for choosing twinkle positions.  The same seed and step
+     * always give the same twinkles. */
+    private volatile long seed = 0x5DEECE66DL;
 
     public DSPatternTwinkle(DotStarBridgedLED leds) {
     	super(leds);
-        // Set up the timer we'll use for visual effects.
-        timer = new ElapsedTime();
+        // The twinkles move once per step.
         pixelSpacing = 10;
         patternDelay = 0.0;
-        lastUpdateTime = timer.milliseconds();
         numColors = 2;
-        colors.add(0, Color.BLUE);
-        colors.add(1, Color.WHITE);
+        setColors(Color.BLUE, Color.WHITE);
         isStatic = false;
     }
 
-    public void update( ) {
-        if (colors.size() >= numColors) {
-            // Wait for time to pass
-            double currentTime = timer.milliseconds();
-            if(currentTime - lastUpdateTime > patternDelay) {
-                int twinkleLeds = leds.pixels.length / pixelSpacing;
-                // Update each pixel in the strip.
-                for (int i = 0; i < leds.pixels.length; i++) {
-                    // Update individual pixels with their new color.
-                    leds.setPixel(i, colors.get(0));
-                }
-                // Set the twinklers
-                for (int i = 0; i < twinkleLeds; i++) {
-                    int twinklePos = (int) (Math.random() * leds.pixels.length);
-                    leds.setPixel(twinklePos, colors.get(1));
-                }
+    /**
+     * Sets the seed used to choose where the twinkles go.
+     * @param seed Any value; different values give different twinkles.
+     */
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public void render(DotStarFrameBuffer frameBuffer, long timeNanos) {
+        // Read the colors once; they may be replaced at any time.
+        int[] colors = getColorArray();
 
-                // Flush the current set of colors to the strip.
-                leds.update();
+        if (colors.length >= numColors) {
+            int twinkleLeds = frameBuffer.getLength() / Math.max(1, pixelSpacing);
+            // Update each pixel in the strip.
+            for (int i = 0; i < frameBuffer.getLength(); i++) {
+                // Update individual pixels with their new color.
+                frameBuffer.setPixel(i, colors[0]);
+            }
+            // Set the twinklers, choosing positions from the seed and the step.
+            long random = (seed ^ getStep(timeNanos)) * 0x9E3779B97F4A7C15L | 1;
+            for (int i = 0; i < twinkleLeds; i++) {
+                random = xorshift(random);
+                int twinklePos = (int) ((random >>> 1) % frameBuffer.getLength());
+                frameBuffer.setPixel(twinklePos, colors[1]);
             }
         }
     }
+
+    /**
+     * Gives the next value of a fast pseudo-random sequence.
+     * @param x The previous value; must not be zero.
+     * @return The next value, never zero.
+     */
+    private static long xorshift(long x) {
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        return x;
+    }
 }
\ No newline at end of file
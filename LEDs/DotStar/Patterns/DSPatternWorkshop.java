@@ -17,38 +17,45 @@ import android.graphics.Color;
 
 public class DSPatternWorkshop extends DotStarPattern {
 
-    boolean blueEvens = false;
 	public DSPatternWorkshop(DotStarBridgedLED leds) {
     	super(leds);
     	isStatic = false;
     	numColors = 2;
-    	colors.add(0, Color.RED);
-    	colors.add(1, Color.BLUE);
+    	setColors(Color.RED, Color.BLUE);
     }
 
-	public void update( ) {
-	    if(colors.size() >= numColors) {
-            // Update each pixel in the strip.
-            for (int i = 0; i < colors.size(); i++) {
+    /* The colors are back where they started after at most two steps. */
+    public long getPeriodSteps() {
+        return 2;
+    }
+
+	public void render(DotStarFrameBuffer frameBuffer, long timeNanos) {
+	    // Read the colors once; they may be replaced at any time.
+	    int[] colors = getColorArray();
+
+	    if(colors.length >= numColors) {
+            // blueEvens flips once for every pixel drawn, carrying over from
+            // one step to the next.
+            boolean blueEvens = (getStep(timeNanos) * colors.length) % 2 == 1;
+
+            // Update one pixel for each color.
+            for (int i = 0; i < colors.length && i < frameBuffer.getLength(); i++) {
                 if(blueEvens) {
                     if (i % 2 == 0) {
-                        leds.setPixel(i, colors.get(1));
+                        frameBuffer.setPixel(i, colors[1]);
                     } else {
-                        leds.setPixel(i, colors.get(0));
+                        frameBuffer.setPixel(i, colors[0]);
                     }
                 } else {
                     if (i % 2 == 0) {
-                        leds.setPixel(i, colors.get(0));
+                        frameBuffer.setPixel(i, colors[0]);
                     } else {
-                        leds.setPixel(i, colors.get(1));
+                        frameBuffer.setPixel(i, colors[1]);
                     }
                 }
                 // Update individual pixels with their new color.
                 blueEvens = !blueEvens;
             }
-
-            // Flush the current set of colors to the strip.
-            leds.update();
         }
 	}
 }
@@ -0,0 +1,233 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Draws and encodes repeating patterns ahead of time, so showing them later takes almost no work.
+ *
+ * Many patterns repeat themselves: a chase returns to where it started after a few steps, and the
+ * rainbow goes all the way around the color wheel every five seconds. Instead of drawing and
+ * encoding every pixel of every frame, the cache draws one period of the pattern once, encodes each
+ * step with {@link DotStarBridgedLED#encode(int[])}, and keeps the bytes along with the colors.
+ * Showing the pattern is then a matter of picking the right frame and writing it. The strip takes
+ * on the frame's colors as well (see {@link DotStarBridgedLED#show(byte[], int[])}), so a later
+ * update of the strip carries on from what is showing. Frames are written the way an update is,
+ * so the strip's maximum frame rate and asynchronous output still apply.
+ *
+ * <pre>
+ *     DotStarAnimationCache cache = new DotStarAnimationCache();
+ *     cache.prepare(rainbow, leds);                  // In init(), since this takes a while.
+ *     ...
+ *     cache.show(rainbow, leds, System.nanoTime());  // In loop(), or on a separate thread.
+ * </pre>
+ *
+ * Only patterns that report a period ({@link DotStarPattern#getPeriodSteps()}) are cached. Others
+ * are drawn and written normally by {@link #show}. A cached animation is drawn again if the
+ * pattern's colors, delay, period, or other settings change, or if the strip's length or output
+ * stage changes.
+ *
+ * Frames can take a lot of memory on long strips, so the cache has a limit. Each frame counts its
+ * encoded size ({@link DotStarEncoder#frameLength(int)}) plus 4 bytes per pixel for its colors.
+ * When adding an animation would go over the limit, the animations shown least recently are thrown
+ * away first.
+ *
+ * @author AJ Foster and Mike Nicolai
+ * @version 1.1.1
+ */
+public class DotStarAnimationCache {
+
+    /** Memory limit used by the default constructor (1 MiB). */
+    public static final long DEFAULT_MAX_BYTES = 1 << 20;
+
+    /** Most bytes of frames to keep. */
+    private final long maxBytes;
+
+    /** Bytes of frames currently kept. */
+    private long bytes;
+
+    /** Cached animations, from least to most recently shown. */
+    private final LinkedHashMap<DotStarPattern, Animation> animations =
+            new LinkedHashMap<DotStarPattern, Animation>(16, 0.75f, true);
+
+    public DotStarAnimationCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxBytes Most bytes of frames to keep.
+     */
+    public DotStarAnimationCache(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Animation cache must allow at least 1 byte");
+        }
+
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Draw and encode one period of a pattern for the given strip, if it isn't cached already.
+     * This takes a while, so do it during initialization.
+     *
+     * @param pattern Pattern to cache.
+     * @param leds    Strip the pattern will be shown on.
+     * @return        True if the pattern is cached; false if it does not repeat, or is too large.
+     */
+    public synchronized boolean prepare(DotStarPattern pattern, DotStarBridgedLED leds) {
+        return lookup(pattern, leds) != null;
+    }
+
+    /**
+     * Show a pattern on the whole strip, as it would look at the given time.
+     *
+     * If the pattern is cached (or can be), its frame is written directly, and nothing is written
+     * if that frame is already showing (see {@link DotStarBridgedLED#show(byte[], int[])}).
+     * Otherwise, the pattern is drawn and the strip updated.
+     *
+     * @param pattern   Pattern to show.
+     * @param leds      Strip to show it on.
+     * @param timeNanos Time (System.nanoTime) of the frame to show.
+     */
+    public synchronized void show(DotStarPattern pattern, DotStarBridgedLED leds, long timeNanos) {
+        Animation animation = lookup(pattern, leds);
+
+        if (animation == null) {
+            pattern.render(leds, timeNanos);
+            leds.update();
+            return;
+        }
+
+        int step = (int) (pattern.getStep(timeNanos) % animation.frames.length);
+        leds.show(animation.frames[step], animation.pixels[step]);
+    }
+
+    /** @return Bytes of frames currently kept. */
+    public synchronized long getBytesUsed() {
+        return bytes;
+    }
+
+    /** Throw away every cached animation. */
+    public synchronized void clear() {
+        animations.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Finds the cached animation of a pattern, creating it if necessary.
+     *
+     * @param pattern Pattern to find.
+     * @param leds    Strip the pattern will be shown on.
+     * @return        Cached animation, or null if the pattern cannot be cached.
+     */
+    private Animation lookup(DotStarPattern pattern, DotStarBridgedLED leds) {
+        Animation animation = animations.get(pattern);
+
+        if (animation != null && animation.matches(pattern, leds)) {
+            return animation;
+        }
+
+        if (animation != null) {
+            animations.remove(pattern);
+            bytes -= animation.bytes;
+        }
+
+        long steps = pattern.getPeriodSteps();
+        int length = leds.getLength();
+        long frameBytes = Animation.frameBytes(length);
+
+        if (steps < 1 || steps > Integer.MAX_VALUE || steps * frameBytes > maxBytes) {
+            return null;
+        }
+
+        // Make room by throwing away the animations shown least recently.
+        Iterator<Map.Entry<DotStarPattern, Animation>> eldest = animations.entrySet().iterator();
+        while (bytes + steps * frameBytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+        }
+
+        animation = new Animation(pattern, leds, (int) steps);
+        animations.put(pattern, animation);
+        bytes += animation.bytes;
+
+        return animation;
+    }
+
+    /**
+     * One period of a pattern, encoded for one strip.
+     */
+    private static class Animation {
+
+        /** Settings the frames were drawn with. */
+        private final DotStarBridgedLED strip;
+        private final int[] colors;
+        private final int length;
+        private final double stepMillis;
+        private final double maxOutputAmps;
+        private final DotStarOutputStage outputStage;
+        private final int version;
+
+        /** Encoded frames, one per step. */
+        private final byte[][] frames;
+
+        /** Colors each frame was encoded from. */
+        private final int[][] pixels;
+
+        /** Total size of the frames. */
+        private final long bytes;
+
+        Animation(DotStarPattern pattern, DotStarBridgedLED strip, int steps) {
+            this.strip = strip;
+            this.colors = pattern.getColorArray();
+            this.length = strip.getLength();
+            this.stepMillis = pattern.getStepMillis();
+            this.maxOutputAmps = strip.getMaxOutputAmps();
+            this.outputStage = strip.getOutputStage();
+            this.version = pattern.getVersion();
+            this.frames = new byte[steps][];
+            this.pixels = new int[steps][];
+
+            // Draw the middle of each step, well away from rounding at the edges.
+            long stepNanos = (long) (stepMillis * 1e6);
+
+            for (int i = 0; i < steps; i++) {
+                DotStarFrame frame = new DotStarFrame(length);
+                pattern.render(frame, pattern.epochNanos + i * stepNanos + stepNanos / 2);
+                pixels[i] = frame.getColors();
+                frames[i] = strip.encode(pixels[i]);
+            }
+
+            this.bytes = steps * frameBytes(length);
+        }
+
+        /**
+         * Gets the memory one frame takes.
+         *
+         * @param length Number of pixels in the strip.
+         * @return       Bytes of the encoded frame and its colors.
+         */
+        static long frameBytes(int length) {
+            return DotStarEncoder.frameLength(length) + 4L * length;
+        }
+
+        /**
+         * Checks whether the frames still match the pattern and strip.
+         *
+         * @param pattern Pattern to check.
+         * @param strip   Strip the pattern will be shown on.
+         * @return        True if the frames can be used.
+         */
+        boolean matches(DotStarPattern pattern, DotStarBridgedLED strip) {
+            // Colors are replaced, never changed, so comparing the arrays themselves is enough.
+            return this.strip == strip
+                    && this.colors == pattern.getColorArray()
+                    && this.length == strip.getLength()
+                    && this.stepMillis == pattern.getStepMillis()
+                    && this.frames.length == pattern.getPeriodSteps()
+                    && this.maxOutputAmps == strip.getMaxOutputAmps()
+                    && this.outputStage == strip.getOutputStage()
+                    && this.version == pattern.getVersion();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.firstinspires.ftc.teamcode;
+
+import android.graphics.Color;
+
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measure how long the DotStar LED code takes, without any LEDs attached
+ *
+ * LEDs share the robot's loop time with everything else, so it helps to know what they cost. This
+ * OpMode runs the LED classes and every pattern against a {@link DotStarSimulator} and reports the
+ * average time per call (in microseconds) for strips of 30, 144, 300, and 1000 pixels:
+ *
+ * - update: encoding every pixel of DotStarBridgedLED and sending it to the (simulated) bridge
+ * - update (recorder): the same, sent to a DotStarRecorderTransport, so only encoding is measured
+ * - update (digital): the same, encoded by DotStarLED and sent over (simulated) digital outputs
+ * - write: splitting an already-encoded frame into I2C-sized chunks and sending them
+ * - each DSPattern: one call to render(), which sets colors without writing to the LEDs
+ * - interpolate: one call to DotStarPattern.interpolateColors
+ *
+ * The simulated bridge answers instantly, so these numbers only include time spent on the Robot
+ * Controller's processor, not time waiting for the I2C bus. Each measurement is repeated a fixed
+ * number of times after a warm-up, so runs on the same phone or Control Hub can be compared before
+ * and after a change. Results appear in telemetry as they finish.
+ *
+ * @author Rick Van Smith
+ * @version 1.1.1
+ */
+@TeleOp(name = "DotStar Benchmark", group = "Utilities")
+public class DotStarBenchmark extends OpMode {
+
+    /** Strip lengths to measure. */
+    private static final int[] LENGTHS = {30, 144, 300, 1000};
+
+    /** Calls made before measuring, so the processor and runtime are warmed up. */
+    private static final int WARMUP_CALLS = 50;
+
+    /** Calls made while measuring. */
+    private static final int MEASURED_CALLS = 200;
+
+    /** Longest time to wait for the measurements to stop (in milliseconds). */
+    private static final long STOP_TIMEOUT_MS = 500;
+
+    /** Time between the frames drawn by each pattern (20 milliseconds). */
+    private static final long FRAME_NANOS = 20000000L;
+
+    /** Results so far, one line per measurement. */
+    private final List<String> results = new ArrayList<String>();
+
+    /** Runs the measurements without holding up the loop. */
+    private Thread benchmarkThread;
+
+    /** Something that can be measured. */
+    private interface Task {
+        void run(int call);
+    }
+
+    @Override
+    public void init() {
+        telemetry.addLine("Press start to measure the LED code. No LEDs are needed.");
+    }
+
+    @Override
+    public void start() {
+        benchmarkThread = new Thread() {
+            public void run() {
+                for (int length : LENGTHS) {
+                    if (isInterrupted()) return;
+                    measureLength(length);
+                }
+
+                if (isInterrupted()) return;
+
+                addResult("Done.");
+            }
+        };
+
+        benchmarkThread.start();
+    }
+
+    @Override
+    public void loop() {
+        synchronized (results) {
+            for (String result : results) {
+                telemetry.addLine(result);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        // Stopped before start, so nothing is running.
+        if (benchmarkThread == null) {
+            return;
+        }
+
+        // The measurements stop between calls; give the current one a moment to finish.
+        benchmarkThread.interrupt();
+
+        try {
+            benchmarkThread.join(STOP_TIMEOUT_MS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs every measurement for one strip length.
+     *
+     * @param length Number of pixels in the strip.
+     */
+    private void measureLength(final int length) {
+        DotStarSimulator strip = new DotStarSimulator(length);
+        final DotStarBridgedLED leds =
+                new DotStarBridgedLED(new DotStarBridgedLED.Parameters(), strip.getBridge(), true);
+        leds.setLength(length);
+
+        // Alternate between two colors, so every pixel changes on every call.
+        addResult(length, "update", measure(new Task() {
+            public void run(int call) {
+                int color = call % 2 == 0 ? Color.RED : Color.BLUE;
+
+                for (int i = 0; i < length; i++) {
+                    leds.setPixel(i, color);
+                }
+
+                leds.update();
+            }
+        }));
+
+        // The same updates sent nowhere, leaving only the cost of encoding.
+        leds.setTransport(new DotStarRecorderTransport());
+        addResult(length, "update (recorder)", measure(new Task() {
+            public void run(int call) {
+                int color = call % 2 == 0 ? Color.RED : Color.BLUE;
+
+                for (int i = 0; i < length; i++) {
+                    leds.setPixel(i, color);
+                }
+
+                leds.update();
+            }
+        }));
+        leds.setTransport(null);
+
+        // The same updates again, through two digital outputs.
+        final DotStarLED digitalLeds = new DotStarLED(length, strip.getClock(), strip.getData());
+        addResult(length, "update (digital)", measure(new Task() {
+            public void run(int call) {
+                int color = call % 2 == 0 ? Color.RED : Color.BLUE;
+
+                for (int i = 0; i < length; i++) {
+                    digitalLeds.setPixel(i, color);
+                }
+
+                digitalLeds.update();
+            }
+        }));
+
+        final byte[] frame = new byte[DotStarEncoder.frameLength(length)];
+        addResult(length, "write", measure(new Task() {
+            public void run(int call) {
+                leds.write(frame, frame.length);
+            }
+        }));
+
+        final List<DotStarPattern> patterns = new ArrayList<DotStarPattern>();
+        patterns.add(new DSPatternChase(leds));
+        patterns.add(new DSPatternFtcTimer(leds));
+        patterns.add(new DSPatternHalfAndHalf(leds));
+        patterns.add(new DSPatternLevelIndicator(leds));
+        patterns.add(new DSPatternRainbow(leds));
+        patterns.add(new DSPatternRainbowShift(leds));
+        patterns.add(new DSPatternTwinkle(leds));
+        patterns.add(new DSPatternWorkshop(leds));
+
+        for (final DotStarPattern pattern : patterns) {
+            // Patterns depend only on the time they are given, so every run draws the same frames.
+            pattern.setEpoch(0);
+            addResult(length, pattern.getClass().getSimpleName(), measure(new Task() {
+                public void run(int call) {
+                    // Moving the measured value keeps static patterns from doing nothing.
+                    pattern.setMeasuredValue((call % 100) / 100.0);
+                    pattern.render(leds, call * FRAME_NANOS);
+                }
+            }));
+        }
+
+        // Interpolation doesn't depend on the strip, but measure one call per pixel to compare.
+        final DotStarPattern interpolator = patterns.get(0);
+        addResult(length, "interpolate", measure(new Task() {
+            public void run(int call) {
+                for (int i = 0; i < length; i++) {
+                    interpolator.interpolateColors(Color.RED, Color.GREEN, i / (double) length);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Runs a task enough times to get a stable average.
+     *
+     * @param task Task to run.
+     * @return     Average time per call, in microseconds, or NaN if the OpMode was stopped.
+     */
+    private double measure(Task task) {
+        Thread thread = Thread.currentThread();
+
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            if (thread.isInterrupted()) return Double.NaN;
+            task.run(i);
+        }
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            if (thread.isInterrupted()) return Double.NaN;
+            task.run(i);
+        }
+
+        return (System.nanoTime() - start) / 1000.0 / MEASURED_CALLS;
+    }
+
+    private void addResult(int length, String name, double micros) {
+        // Measurements cut short by stopping the OpMode are left out.
+        if (Double.isNaN(micros)) return;
+
+        addResult(String.format("%4d px %-24s %10.1f us", length, name, micros));
+    }
+
+    private void addResult(String line) {
+        synchronized (results) {
+            results.add(line);
+        }
+    }
+}
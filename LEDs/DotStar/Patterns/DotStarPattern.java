@@ -6,6 +6,27 @@ package org.firstinspires.ftc.teamcode;
  * interface.  A new pattern should extend this class and implement the
  * IDotStarPattern interface.
  *
+ * Patterns are drawn by render, as a function of the time of the frame and
+ * nothing else, so the same time always gives the same colors.  Moving
+ * patterns advance in steps of the pattern delay (or MIN_STEP_MILLIS if the
+ * delay is zero) counted from the pattern's epoch.  A new pattern should
+ * implement render; update draws on the target at the current time and writes
+ * the LEDs.
+ *
+ * Patterns that draw in update instead, as in earlier versions, keep working
+ * unchanged.  For them, render runs update with getTarget returning the
+ * pixels being rendered and flush turned off, on the rendering thread only,
+ * and the time given is ignored.  So that render draws where it should, such
+ * a pattern draws on getTarget and ends with flush, rather than drawing on the
+ * strip directly.  A pattern must override one of render or update.
+ *
+ * A static pattern drawing on the whole strip is drawn and encoded once, and
+ * the encoded frame is reused by every update until the colors, the measured
+ * value, the pattern's other settings (see getVersion), or the strip's
+ * length (or current limit) change.  Updates do no work at all while none of
+ * these change and nothing else has drawn on the strip.  A strip that dithers
+ * needs new bytes every frame, so there the pattern is drawn every update.
+ *
  * DotStar LEDs (i.e. https://www.adafruit.com/product/2238) are collections of LEDs which are
  * programmable using SPI. While it is possible to use two digital outputs as data and clock lines,
  * an I2C/SPI Bridge can manage the digital writes at a much higher frequency. This is required for
@@ -15,31 +36,72 @@ package org.firstinspires.ftc.teamcode;
  * @author Rick Van Smith
  * @version 1.0.0
  */
-import android.graphics.Color;
-
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 import org.firstinspires.ftc.teamcode.DotStarBridgedLED.Pixel;
 
 public abstract class DotStarPattern implements IDotStarPattern {
+    /* Shortest time between steps of a moving pattern, used when the pattern delay is zero. */
+    public static final double MIN_STEP_MILLIS = 20.0;
+
     /* LEDs: Use this line if you drive the LEDs using an I2C/SPI bridge. */
     protected DotStarBridgedLED leds;
-	protected List<Integer> colors;
+	/**
+	 * Where the pattern draws its colors: the whole strip, unless a segment (or
+	 * other frame buffer) has been set with setTarget.
+	 */
+	protected volatile DotStarFrameBuffer target;
+	/**
+	 * The pattern's colors.  The array is never changed once published, only
+	 * replaced, so read it once per update (see getColorArray) and use that
+	 * copy.
+	 */
+	private volatile int[] colorArray = new int[0];
+	/* List view of colorArray, which colors starts out as. */
+	private final ColorList colorView = new ColorList();
+	/**
+	 * The pattern's colors as a list, for patterns written against earlier
+	 * versions.  Changes made through it are seen by getColorArray, as is a
+	 * new list put in its place.
+	 */
+	protected List<Integer> colors = colorView;
 	protected boolean isStatic;
 	protected int numColors;
 	protected int pixelSpacing;
 	protected double patternDelay;
 	protected double measuredValue;
+	/* Time (System.nanoTime) the pattern starts from. */
+	protected volatile long epochNanos;
+	/* Pixels being rendered on by each thread, while render runs update. */
+	private final ThreadLocal<DotStarFrameBuffer> renderTarget = new ThreadLocal<DotStarFrameBuffer>();
+	/**
+	 * Number of changes to settings that affect how the pattern draws, other
+	 * than the colors and measured value.  See settingsChanged.
+	 */
+	protected volatile int version;
+	/* Encoded frame of a static pattern, and what it was drawn with. */
+	private byte[] staticFrame;
+	private int[] staticColors;
+	private int[] staticPixels;
+	private int staticVersion;
+	private double staticValue;
+	private int staticLength;
+	private double staticAmps;
+	private DotStarOutputStage staticStage;
+	/* Generation of the strip (see DotStarBridgedLED.getGeneration) once the frame was shown. */
+	private int staticGeneration;
 
 	public DotStarPattern(DotStarBridgedLED leds) {
 	    isStatic = false;
-	    colors = Collections.synchronizedList(new ArrayList<Integer>());
 	    this.leds = leds;
+	    this.target = leds;
 	    numColors = 0;
 	    pixelSpacing = 0;
 	    patternDelay = 0.0;
 	    measuredValue = 0.0;
+	    epochNanos = System.nanoTime();
 	}
 
 	/**
@@ -54,6 +116,33 @@ public abstract class DotStarPattern implements IDotStarPattern {
 	 */
 	public int getNumColors() { return numColors; }
 
+    /**
+     * Sets where the pattern draws.  When drawing on a segment (or anything
+     * other than the whole strip), the pattern does not write to the LEDs; the
+     * owner of the strip calls update once after every pattern has drawn.
+     * @param target Pixels to draw on, or null to draw on the whole strip.
+     */
+    public synchronized void setTarget(DotStarFrameBuffer target) {
+        this.target = target != null ? target : leds;
+    }
+
+    /**
+     * Gets where the pattern draws.
+     * @return The pixels being rendered on, if called from update while render
+     *   runs it, or else the pixels set with setTarget.
+     */
+    public DotStarFrameBuffer getTarget() {
+        DotStarFrameBuffer rendering = renderTarget.get();
+        return rendering != null ? rendering : target;
+    }
+
+    /**
+     * Sets the time the pattern starts from, for example to start a countdown
+     * when the OpMode starts.  Patterns begin at the time they are created.
+     * @param timeNanos The start time (System.nanoTime).
+     */
+    public void setEpoch(long timeNanos) { epochNanos = timeNanos; }
+
     /**
      * Sets an external value used by the pattern to adjust the pattern.
      * @param measurement A value used to adjust the pattern.  The pattern must be
@@ -68,17 +157,60 @@ public abstract class DotStarPattern implements IDotStarPattern {
      */
 	public void setPatternColors(List<Integer> newColors) {
 	    if(newColors != null) {
-            colors = Collections.synchronizedList(new ArrayList<Integer>(newColors));
+            int[] snapshot = toArray(newColors);
+            synchronized (this) {
+                colorArray = snapshot;
+                colors = colorView;
+            }
         }
 	}
 
+    /**
+     * Set colors of a pattern without creating a list.
+     * @param newColors Color values (android.graphics.Color)
+     */
+	protected void setColors(int... newColors) {
+	    int[] snapshot = newColors.clone();
+	    synchronized (this) {
+	        colorArray = snapshot;
+	        colors = colorView;
+	    }
+	}
+
+    /**
+     * Get colors of a pattern without creating a list.  The array must not be
+     * changed; it is replaced, not changed, when the colors change.
+     * @return Color values (android.graphics.Color)
+     */
+	protected int[] getColorArray() {
+	    if (colors != colorView) {
+	        // A subclass put a list of its own in place of the view; take its
+	        // colors, and go back to the view.
+	        synchronized (this) {
+	            List<Integer> replaced = colors;
+	            if (replaced != colorView) {
+	                if (replaced != null) {
+	                    colorArray = toArray(replaced);
+	                }
+	                colors = colorView;
+	            }
+	        }
+	    }
+	    return colorArray;
+	}
+
     /**
      * Get colors of a pattern.  This default implementation should work for
 	 * most  patterns.
      * @return The list of colors that will make up the pattern.
      */
     public List<Integer> getPatternColors() {
-        return new ArrayList<Integer>(colors);
+        int[] snapshot = getColorArray();
+        List<Integer> list = new ArrayList<Integer>(snapshot.length);
+        for (int color : snapshot) {
+            list.add(color);
+        }
+        return list;
     }
 
     /**
@@ -105,7 +237,7 @@ public abstract class DotStarPattern implements IDotStarPattern {
 	 * be the time between shifting the pattern.
 	 * @param milliseconds A time in milliseconds to delay the pattern.
 	 */
-	public void setPatternDelay(double milliseconds) { patternDelay = milliseconds; };
+	public void setPatternDelay(double milliseconds) { patternDelay = milliseconds; settingsChanged(); };
 
 	/**
 	 * Gets the time the pattern will use as a delay.
@@ -119,7 +251,7 @@ public abstract class DotStarPattern implements IDotStarPattern {
 	 * be how many pixels between pattern elements.
 	 * @param pixelSpacing A spacing in pixels.
 	 */
-	public void setPatternSpacing(int pixelSpacing) { this.pixelSpacing = pixelSpacing; };
+	public void setPatternSpacing(int pixelSpacing) { this.pixelSpacing = pixelSpacing; settingsChanged(); };
 
 	/**
 	 * Gets the spacing the pattern will use.
@@ -128,6 +260,157 @@ public abstract class DotStarPattern implements IDotStarPattern {
 	 */
 	public int getPatternSpacing() { return pixelSpacing; };
 
+	/**
+	 * Update gets called by the opMode to make the pattern update.  Draws the
+	 * pattern at the current time, then writes the LEDs if the pattern is
+	 * drawing on the whole strip.
+	 */
+	public void update() {
+	    // Reached from render only if the pattern overrides neither method.
+	    if (renderTarget.get() != null) {
+	        throw new IllegalStateException(getClass().getName() + " must override render or update");
+	    }
+
+	    // Read the target once; it may be replaced at any time.
+	    DotStarFrameBuffer target = this.target;
+
+	    if (isStatic && target == leds && !leds.getOutputStage().isDithering()) {
+	        showStaticFrame();
+	        return;
+	    }
+
+	    render(target, System.nanoTime());
+	    flush();
+	}
+
+	/**
+	 * Writes the encoded frame of a static pattern, drawing and encoding it
+	 * first if anything it depends on has changed.  Nothing is done if the
+	 * frame is already showing and the strip has not changed since.
+	 */
+	private void showStaticFrame() {
+	    int[] colors = getColorArray();
+	    double value = measuredValue;
+	    int version = getVersion();
+	    int length = leds.getLength();
+	    double amps = leds.getMaxOutputAmps();
+	    DotStarOutputStage stage = leds.getOutputStage();
+
+	    // Like render, draw nothing until the pattern has all of its colors.
+	    if (colors.length < numColors) {
+	        return;
+	    }
+
+	    boolean changed = staticFrame == null || colors != staticColors || value != staticValue
+	            || version != staticVersion || length != staticLength || amps != staticAmps
+	            || stage != staticStage;
+
+	    if (!changed && leds.getGeneration() == staticGeneration) {
+	        // Only a write held back by the strip's frame rate may be left to do.
+	        leds.update();
+	        return;
+	    }
+
+	    if (changed) {
+	        DotStarFrame frame = new DotStarFrame(length);
+	        render(frame, System.nanoTime());
+
+	        staticPixels = frame.getColors();
+	        staticFrame = leds.encode(staticPixels);
+	        staticColors = colors;
+	        staticValue = value;
+	        staticVersion = version;
+	        staticLength = length;
+	        staticAmps = amps;
+	        staticStage = stage;
+	    }
+
+	    // The strip takes on the colors too, so a later update doesn't bring back old ones.
+	    leds.show(staticFrame, staticPixels);
+	    staticGeneration = leds.getGeneration();
+	}
+
+	/**
+	 * Draws the pattern on the given pixels, without writing to the LEDs.  The
+	 * caller decides when to write, so several patterns can draw before a
+	 * single write.  This default implementation is for patterns that draw in
+	 * update: it runs update with getTarget returning the given pixels and
+	 * flush turned off.
+	 * @param frameBuffer Pixels to draw on.
+	 * @param timeNanos The time (System.nanoTime) of the frame being drawn.
+	 *   Patterns that draw in update keep their own time, so it is ignored.
+	 */
+	public void render(DotStarFrameBuffer frameBuffer, long timeNanos) {
+	    renderTarget.set(frameBuffer);
+	    try {
+	        update();
+	    } finally {
+	        renderTarget.remove();
+	    }
+	}
+
+	/**
+	 * Notes that a setting affecting how the pattern draws has changed, so a
+	 * frame drawn ahead of time must be drawn again.  Patterns with settings of
+	 * their own call this from their setters.
+	 */
+	protected synchronized void settingsChanged() { version++; }
+
+	/**
+	 * Gets the version of the pattern's settings, which changes whenever a
+	 * setting affecting how the pattern draws changes.  Patterns whose settings
+	 * are public fields may override this to check them.
+	 * @return The version; only whether it changed matters.
+	 */
+	protected int getVersion() { return version; }
+
+	/**
+	 * Gets the time since the epoch.
+	 * @param timeNanos The time (System.nanoTime) of the frame being drawn.
+	 * @return The milliseconds since the epoch, never less than zero.
+	 */
+	protected double getElapsedMillis(long timeNanos) {
+	    return Math.max(0, timeNanos - epochNanos) / 1e6;
+	}
+
+	/**
+	 * Gets the length of one step of a moving pattern.
+	 * @return The pattern delay, or MIN_STEP_MILLIS if that is shorter.
+	 */
+	protected double getStepMillis() {
+	    return Math.max(patternDelay, MIN_STEP_MILLIS);
+	}
+
+	/**
+	 * Gets the number of whole steps since the epoch.  Moving patterns should
+	 * compute their colors from this, so frames within a step are identical.
+	 * @param timeNanos The time (System.nanoTime) of the frame being drawn.
+	 * @return The step number, starting from zero.
+	 */
+	protected long getStep(long timeNanos) {
+	    return (long) (getElapsedMillis(timeNanos) / getStepMillis());
+	}
+
+	/**
+	 * Gets the number of steps after which a moving pattern repeats itself.
+	 * Patterns that repeat can be drawn ahead of time (see
+	 * DotStarAnimationCache).  This default implementation says the pattern
+	 * does not repeat.
+	 * @return The steps in one period, or 0 if the pattern does not repeat.
+	 */
+	public long getPeriodSteps() { return 0; }
+
+	/**
+	 * Sends the colors drawn to the LEDs, if the pattern is drawing on the
+	 * whole strip.  Called at the end of update.  Does nothing while render
+	 * runs update.
+	 */
+	protected void flush() {
+	    if (renderTarget.get() == null && target == leds) {
+	        leds.update();
+	    }
+	}
+
 	/**
 	 * Gives the color between two colors.  The percentage is how far towards
 	 * color2 to go.  This is a utility function that many color patterns might
@@ -139,19 +422,177 @@ public abstract class DotStarPattern implements IDotStarPattern {
 	 * @return int The new color.
 	 */
 	protected int interpolateColors(int color1, int color2, double percentage) {
-		int alpha1 = Color.alpha(color1);
-		int red1 = Color.red(color1);
-		int green1 = Color.green(color1);
-		int blue1 = Color.blue(color1);
-		int alpha2 = Color.alpha(color2);
-		int red2 = Color.red(color2);
-		int green2 = Color.green(color2);
-		int blue2 = Color.blue(color2);
-		int newAlpha = (int)(alpha1 * (1 - percentage) + alpha2 * percentage);
-		int newRed = (int)(red1 * (1 - percentage) + red2 * percentage);
-		int newGreen = (int)(green1 * (1 - percentage) + green2 * percentage);
-		int newBlue = (int)(blue1 * (1 - percentage) + blue2 * percentage);
-
-		return Color.argb(newAlpha, newRed, newGreen, newBlue);
+		return interpolateFixed(color1, color2, (int) (percentage * 256));
+	}
+
+	/**
+	 * Gives the color between two colors using only integer math.  The weight
+	 * is how far towards color2 to go, in 256ths (8.8 fixed point), so 128 is
+	 * halfway and 256 is fully color2.  Each channel is rounded down.
+	 * @param color1 int The first color to interpolate
+	 * @param color2 int The second color to interpolate
+	 * @param weight int How far towards color2 to go, from 0 to 256.  Values
+	 *               outside this range are clipped.
+	 * @return int The new color.
+	 */
+	protected static int interpolateFixed(int color1, int color2, int weight) {
+		int t = Math.max(0, Math.min(256, weight));
+
+		// Blend red and blue together, then alpha and green.  Each channel gets
+		// 16 bits of room, enough for a color value times 256.
+		int redBlue = (color1 & 0x00FF00FF) * (256 - t) + (color2 & 0x00FF00FF) * t;
+		int alphaGreen = ((color1 >>> 8) & 0x00FF00FF) * (256 - t) + ((color2 >>> 8) & 0x00FF00FF) * t;
+
+		return (alphaGreen & 0xFF00FF00) | ((redBlue >>> 8) & 0x00FF00FF);
+	}
+
+	/* Copies a list of colors into a new array. */
+	private static int[] toArray(List<Integer> list) {
+	    int[] array = new int[list.size()];
+	    for (int i = 0; i < array.length; i++) {
+	        array[i] = list.get(i);
+	    }
+	    return array;
+	}
+
+	/**
+	 * List view of the pattern's colors.  Changes copy the color array and
+	 * replace it, so a frame being drawn keeps the colors it started with.
+	 */
+	private class ColorList extends AbstractList<Integer> implements RandomAccess {
+		@Override
+		public Integer get(int index) { return colorArray[index]; }
+
+		@Override
+		public int size() { return colorArray.length; }
+
+		@Override
+		public Integer set(int index, Integer color) {
+			synchronized (DotStarPattern.this) {
+				int[] copy = colorArray.clone();
+				int previous = copy[index];
+				copy[index] = color;
+				colorArray = copy;
+				return previous;
+			}
+		}
+
+		@Override
+		public void add(int index, Integer color) {
+			synchronized (DotStarPattern.this) {
+				int[] old = colorArray;
+				if (index < 0 || index > old.length) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + old.length);
+				}
+				int[] copy = new int[old.length + 1];
+				System.arraycopy(old, 0, copy, 0, index);
+				copy[index] = color;
+				System.arraycopy(old, index, copy, index + 1, old.length - index);
+				colorArray = copy;
+				modCount++;
+			}
+		}
+
+		@Override
+		public Integer remove(int index) {
+			synchronized (DotStarPattern.this) {
+				int[] old = colorArray;
+				int removed = old[index];
+				int[] copy = new int[old.length - 1];
+				System.arraycopy(old, 0, copy, 0, index);
+				System.arraycopy(old, index + 1, copy, index, old.length - index - 1);
+				colorArray = copy;
+				modCount++;
+				return removed;
+			}
+		}
+	}
+
+	/**
+	 * A color ramp through several colors, worked out ahead of time.  Looking
+	 * up a color in a gradient is a table lookup, so patterns that shade by
+	 * position or by a measured value can build one gradient when their colors
+	 * change and reuse it for every pixel of every frame.
+	 */
+	public static class Gradient {
+		/* Color at each step, from the first stop to the last. */
+		private final int[] table;
+
+		/**
+		 * Creates a gradient with its colors evenly spaced.
+		 * @param steps The number of colors to work out ahead of time.
+		 * @param colors The colors to pass through, in order.
+		 */
+		public Gradient(int steps, int... colors) {
+			this(steps, evenPositions(colors.length), colors);
+		}
+
+		/**
+		 * Creates a gradient with its colors at the given positions.
+		 * @param steps The number of colors to work out ahead of time.
+		 * @param positions Where each color is, from 0.0 (the start) to 1.0 (the
+		 *                  end), in increasing order.
+		 * @param colors The colors to pass through, in order.
+		 */
+		public Gradient(int steps, double[] positions, int[] colors) {
+			if (steps < 2 || colors.length < 1 || positions.length != colors.length) {
+				throw new IllegalArgumentException("A gradient needs 2 steps and a position for each color");
+			}
+
+			table = new int[steps];
+			int stop = 0;
+
+			for (int i = 0; i < steps; i++) {
+				double position = i / (double) (steps - 1);
+
+				while (stop < positions.length - 2 && position > positions[stop + 1]) {
+					stop++;
+				}
+
+				if (colors.length == 1 || position <= positions[0]) {
+					table[i] = colors[0];
+				} else if (position >= positions[positions.length - 1]) {
+					table[i] = colors[colors.length - 1];
+				} else {
+					double span = positions[stop + 1] - positions[stop];
+					int weight = span > 0 ? (int) ((position - positions[stop]) / span * 256) : 256;
+					table[i] = interpolateFixed(colors[stop], colors[stop + 1], weight);
+				}
+			}
+		}
+
+		/**
+		 * Gets the number of colors worked out ahead of time.
+		 * @return The number of steps from the start to the end.
+		 */
+		public int getSteps() { return table.length; }
+
+		/**
+		 * Gets the color at a step of the gradient.
+		 * @param step The step, from 0 to getSteps() - 1; others are clipped.
+		 * @return int The color at that step.
+		 */
+		public int getColorAtStep(int step) {
+			return table[Math.max(0, Math.min(table.length - 1, step))];
+		}
+
+		/**
+		 * Gets the color nearest a position along the gradient.
+		 * @param position From 0.0 (the start) to 1.0 (the end); others are
+		 *                 clipped.
+		 * @return int The color at that position.
+		 */
+		public int getColor(double position) {
+			return getColorAtStep((int) (position * (table.length - 1) + 0.5));
+		}
+
+		/* Positions spreading the given number of colors evenly from 0 to 1. */
+		private static double[] evenPositions(int count) {
+			double[] positions = new double[count];
+			for (int i = 0; i < count; i++) {
+				positions[i] = count > 1 ? i / (double) (count - 1) : 0.0;
+			}
+			return positions;
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a pattern at a steady frame rate on its own thread, away from the OpMode loop.
+ *
+ * Calling a pattern's update() from loop() makes every loop wait for the LEDs. Instead, create a
+ * scheduler with the frame rate you want, give it a pattern, and start it. The active pattern can
+ * be swapped at any time from the loop; the next frame will use the new one. Remember to stop the
+ * scheduler in your OpMode's stop() method. The frames run on a daemon thread, so a scheduler that
+ * is never stopped does not keep the Robot Controller app from exiting.
+ *
+ * The scheduler also keeps track of how well it keeps time. Jitter is how far each frame started
+ * from when it should have, and a missed deadline is a frame that finished after the next one was
+ * due. Lots of missed deadlines mean the frame rate is higher than the LEDs can handle.
+ *
+ * @author Rick Van Smith
+ * @version 1.0.1
+ */
+public class DotStarPatternScheduler {
+
+    /** Pattern to update each frame, or null to do nothing. */
+    private final AtomicReference<IDotStarPattern> pattern = new AtomicReference<IDotStarPattern>();
+
+    /** Time between frames (in nanoseconds). */
+    private final long periodNanos;
+
+    /** Runs the frames, or null if the scheduler is stopped. */
+    private ScheduledExecutorService executor;
+
+    /** Guards the frame statistics. */
+    private final Object statsLock = new Object();
+
+    /** Time (System.nanoTime) when the first frame was due, guarded by statsLock. */
+    private long startNanos;
+
+    /** Frame statistics, guarded by statsLock. */
+    private long frames, missedDeadlines, totalJitterNanos, maxJitterNanos;
+
+    /** The most recent error thrown by a pattern, if any. */
+    private volatile RuntimeException lastError;
+
+    /**
+     * @param framesPerSecond How many times per second to update the pattern.
+     */
+    public DotStarPatternScheduler(double framesPerSecond) {
+        if (framesPerSecond <= 0 || framesPerSecond > 1000) {
+            throw new IllegalArgumentException("Frame rate must be between 0 and 1000 per second");
+        }
+
+        this.periodNanos = (long) (1e9 / framesPerSecond);
+    }
+
+    /**
+     * Sets the pattern to run. The change takes effect at the next frame.
+     *
+     * @param newPattern Pattern to update each frame, or null to pause.
+     */
+    public void setPattern(IDotStarPattern newPattern) {
+        pattern.set(newPattern);
+    }
+
+    /**
+     * Gets the pattern currently running.
+     *
+     * @return The active pattern, or null if there is none.
+     */
+    public IDotStarPattern getPattern() {
+        return pattern.get();
+    }
+
+    /**
+     * Starts updating the pattern. Does nothing if already started.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+
+        synchronized (statsLock) {
+            frames = 0;
+            missedDeadlines = 0;
+            totalJitterNanos = 0;
+            maxJitterNanos = 0;
+            startNanos = System.nanoTime();
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "DotStarPatternScheduler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                runFrame();
+            }
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops updating the pattern, waiting briefly for the current frame to finish.
+     */
+    public synchronized void stop() {
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(500, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        }
+        catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        executor = null;
+    }
+
+    /** @return Number of frames run since the scheduler started. */
+    public long getFrameCount() {
+        synchronized (statsLock) {
+            return frames;
+        }
+    }
+
+    /** @return Number of frames that finished after the next frame was due. */
+    public long getMissedDeadlines() {
+        synchronized (statsLock) {
+            return missedDeadlines;
+        }
+    }
+
+    /** @return Average difference (in milliseconds) between when frames should and did start. */
+    public double getAverageJitterMillis() {
+        synchronized (statsLock) {
+            return frames == 0 ? 0.0 : totalJitterNanos / (double) frames / 1e6;
+        }
+    }
+
+    /** @return Largest difference (in milliseconds) between when a frame should and did start. */
+    public double getMaxJitterMillis() {
+        synchronized (statsLock) {
+            return maxJitterNanos / 1e6;
+        }
+    }
+
+    /** @return The most recent error thrown by a pattern, or null if there has been none. */
+    public RuntimeException getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Updates the active pattern once, and records how close to schedule it ran.
+     */
+    private void runFrame() {
+        long began = System.nanoTime();
+        IDotStarPattern active = pattern.get();
+
+        try {
+            if (active != null) {
+                active.update();
+            }
+        }
+        catch (RuntimeException e) {
+            // Keep running; an exception here would otherwise silently cancel all future frames.
+            lastError = e;
+        }
+
+        long ended = System.nanoTime();
+
+        synchronized (statsLock) {
+            long due = startNanos + frames * periodNanos;
+            long jitter = Math.abs(began - due);
+
+            totalJitterNanos += jitter;
+            maxJitterNanos = Math.max(maxJitterNanos, jitter);
+
+            if (ended - due > periodNanos) {
+                missedDeadlines++;
+            }
+
+            frames++;
+        }
+    }
+}
@@ -30,6 +30,9 @@ public class DotStarPatternTester extends OpMode {
     IDotStarPattern indicator;
     IDotStarPattern ledDisplay;
     IDotStarPattern workshop;
+
+    /* Runs the active pattern on its own thread, so the loop never waits for the LEDs. */
+    DotStarPatternScheduler scheduler;
     float[] redHsv = new float[]{0f, 0f, 0f};
     float[] yellowHsv = new float[]{0f, 0f, 0f};
     float[] greenHsv = new float[]{0f, 0f, 0f};
@@ -77,11 +80,15 @@ public class DotStarPatternTester extends OpMode {
 
         // This creates a default workshop pattern
         workshop = new DSPatternWorkshop(leds);
+
+        // Update the patterns 30 times per second.
+        scheduler = new DotStarPatternScheduler(30);
     }
 
     public void start() {
         ledDisplay = rainbow;
-        ledDisplay.update();
+        scheduler.setPattern(ledDisplay);
+        scheduler.start();
     }
 
     @Override
@@ -113,7 +120,13 @@ public class DotStarPatternTester extends OpMode {
             telemetry.addData("Joystick X", powerX);
             telemetry.addData("Joystick Y", powerY);
             telemetry.addData("Joystick Magnitude", magnitude);
-            ledDisplay.update();
+
+            // The scheduler picks up the new pattern at its next frame.
+            scheduler.setPattern(ledDisplay);
+            telemetry.addData("LED Frames", scheduler.getFrameCount());
+            telemetry.addData("LED Missed Deadlines", scheduler.getMissedDeadlines());
+            telemetry.addData("LED Jitter (ms)", "%.2f avg, %.2f max",
+                    scheduler.getAverageJitterMillis(), scheduler.getMaxJitterMillis());
         } catch (Throwable ex) {
             telemetry.addData("Exception: ", ex.getMessage());
         }
@@ -121,5 +134,6 @@ public class DotStarPatternTester extends OpMode {
 
     @Override
     public void stop() {
+        scheduler.stop();
     }
 }